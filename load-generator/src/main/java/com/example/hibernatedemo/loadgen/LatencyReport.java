@@ -0,0 +1,97 @@
+package com.example.hibernatedemo.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the reports of the scenario runs.
+ * <p>
+ * For every operation, the full latency distribution is written in the HdrHistogram
+ * percentile format ({@code <scenario>_<operation>.hgrm}, values in milliseconds), which
+ * can be plotted and compared between builds. One line per operation is also appended
+ * to {@code summary.csv} with the throughput and the main percentiles, which are flagged
+ * as invalid when requests of the operation were dropped.
+ * </p>
+ */
+public class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1_000d;
+    private static final String SUMMARY_HEADER =
+            "scenario,operation,requests,errors,dropped,percentiles_valid,throughput_per_s,p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms,statuses";
+
+    private final Path outputDirectory;
+
+    public LatencyReport(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Writes the histogram files of the run and appends it to the summary.
+     *
+     * @param result the measurements of a scenario run
+     * @throws IOException if a report file cannot be written
+     */
+    public void write(ScenarioResult result) throws IOException {
+        Files.createDirectories(outputDirectory);
+        Path summary = outputDirectory.resolve("summary.csv");
+        if (Files.notExists(summary)) {
+            Files.writeString(summary, SUMMARY_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+
+        for (OperationStats operation : result.operations().values()) {
+            Path histogramFile = outputDirectory.resolve(
+                    result.scenario() + "_" + operation.operation().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(histogramFile), false, StandardCharsets.UTF_8)) {
+                operation.total().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+            Files.writeString(summary, summaryLine(result, operation) + System.lineSeparator(),
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Formats a human-readable line for the console.
+     *
+     * @param result    the scenario run
+     * @param operation one of its operations
+     * @return the formatted line
+     */
+    public static String consoleLine(ScenarioResult result, OperationStats operation) {
+        Histogram histogram = operation.total();
+        String line = String.format(Locale.ROOT,
+                "[%s] %-24s %8d req %6d err %6d dropped %9.1f req/s  p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                result.scenario(), operation.operation(), histogram.getTotalCount(), operation.errors(),
+                operation.dropped(), result.throughput(operation),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+        if (!operation.percentilesValid()) {
+            line += "  INVALID PERCENTILES: requests dropped at max-in-flight";
+        }
+        return line;
+    }
+
+    private static String summaryLine(ScenarioResult result, OperationStats operation) {
+        Histogram histogram = operation.total();
+        String statuses = operation.statusCounts().entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue().sum())
+                .collect(Collectors.joining(" "));
+        return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%b,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f,%s",
+                result.scenario(), operation.operation(), histogram.getTotalCount(), operation.errors(),
+                operation.dropped(), operation.percentilesValid(), result.throughput(operation),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()), statuses);
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Entry point of the HTTP load-test harness.
+ * <p>
+ * Plays, against a backend already running (e.g. started with {@code mvn spring-boot:run}),
+ * the following scenarios in order:
+ * </p>
+ * <ul>
+ *     <li>{@code registration}: ramped {@code POST /api/player} registrations,</li>
+ *     <li>{@code mixed}: GET/PUT/DELETE on the registered players,</li>
+ *     <li>{@code draw}: repeated {@code GET /api/player/random} draws.</li>
+ * </ul>
+ * <p>
+ * Reports are written in the output directory, see {@link LatencyReport} and
+ * {@link OpenModelRunner}. Run with:
+ * {@code mvn -f load-generator/pom.xml compile exec:java -Dexec.args="--base-url=http://localhost:8080"}
+ * </p>
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorOptions options = LoadGeneratorOptions.parse(args);
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(options.requestTimeout())
+                .build();
+
+        PlayerRequests requests = new PlayerRequests(options.baseUrl(), options.requestTimeout());
+        PlayerPool pool = new PlayerPool();
+        String runId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : options.scenarios()) {
+            scenarios.add(switch (name.strip()) {
+                case "registration" -> new RegistrationRushScenario(requests,
+                        new RateProfile(options.registrationStartRate(), options.registrationPeakRate(),
+                                options.rampDuration(), options.holdDuration()),
+                        pool, runId);
+                case "mixed" -> new MixedCrudScenario(requests,
+                        RateProfile.constant(options.mixedRate(), options.holdDuration()), pool);
+                case "draw" -> new RandomDrawScenario(requests,
+                        RateProfile.constant(options.drawRate(), options.holdDuration()));
+                default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+            });
+        }
+
+        OpenModelRunner runner = new OpenModelRunner(client, options.maxInFlight(), options.outputDirectory());
+        LatencyReport report = new LatencyReport(options.outputDirectory());
+        for (Scenario scenario : scenarios) {
+            System.out.println("Running scenario " + scenario.name() + " against " + options.baseUrl());
+            ScenarioResult result = runner.run(scenario);
+            report.write(result);
+            result.operations().values().forEach(operation ->
+                    System.out.println(LatencyReport.consoleLine(result, operation)));
+        }
+        System.out.println("Reports written to " + options.outputDirectory().toAbsolutePath());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of the {@link LoadGenerator}.
+ * <p>
+ * Every option is given as {@code --name=value} and has a default suited to a
+ * backend started locally with {@code mvn spring-boot:run}.
+ * </p>
+ *
+ * @param baseUrl              root URL of the backend, e.g. {@code http://localhost:8080}
+ * @param scenarios            scenarios to run, in order
+ * @param registrationStartRate request rate (per second) at the start of the registration ramp
+ * @param registrationPeakRate  request rate (per second) reached at the end of the registration ramp
+ * @param rampDuration         duration of the registration ramp
+ * @param holdDuration         duration of every constant-rate phase
+ * @param mixedRate            request rate (per second) of the mixed GET/PUT/DELETE scenario
+ * @param drawRate             request rate (per second) of the random draw scenario
+ * @param maxInFlight          maximum number of outstanding requests before new ones are counted as dropped
+ * @param requestTimeout       timeout of a single HTTP request
+ * @param outputDirectory      directory where the reports are written
+ */
+public record LoadGeneratorOptions(URI baseUrl,
+                                   List<String> scenarios,
+                                   double registrationStartRate,
+                                   double registrationPeakRate,
+                                   Duration rampDuration,
+                                   Duration holdDuration,
+                                   double mixedRate,
+                                   double drawRate,
+                                   int maxInFlight,
+                                   Duration requestTimeout,
+                                   Path outputDirectory) {
+
+    /**
+     * Parses the command line arguments.
+     *
+     * @param args arguments of the form {@code --name=value}
+     * @return the parsed options, defaults applied for missing values
+     * @throws IllegalArgumentException if an argument is malformed or unknown
+     */
+    public static LoadGeneratorOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadGeneratorOptions options = new LoadGeneratorOptions(
+                URI.create(values.getOrDefault("base-url", "http://localhost:8080")),
+                List.of(values.getOrDefault("scenarios", "registration,mixed,draw").split(",")),
+                Double.parseDouble(values.getOrDefault("registration-start-rate", "10")),
+                Double.parseDouble(values.getOrDefault("registration-peak-rate", "500")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("ramp-seconds", "30"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("hold-seconds", "30"))),
+                Double.parseDouble(values.getOrDefault("mixed-rate", "200")),
+                Double.parseDouble(values.getOrDefault("draw-rate", "100")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "10000")),
+                Duration.ofMillis(Long.parseLong(values.getOrDefault("timeout-ms", "10000"))),
+                Path.of(values.getOrDefault("out", "target/load-results")));
+
+        values.keySet().removeAll(List.of("base-url", "scenarios", "registration-start-rate",
+                "registration-peak-rate", "ramp-seconds", "hold-seconds", "mixed-rate", "draw-rate",
+                "max-in-flight", "timeout-ms", "out"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return options;
+    }
+}
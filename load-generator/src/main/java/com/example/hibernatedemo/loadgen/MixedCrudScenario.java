@@ -0,0 +1,60 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mixed administration traffic on the players registered by the rush.
+ * <p>
+ * The operations are drawn with fixed weights: 55% {@code GET /api/player/{id}},
+ * 5% {@code GET /api/player}, 30% {@code PUT /api/player/{id}} and 10%
+ * {@code DELETE /api/player/{id}}. When the {@link PlayerPool} is empty the roster is
+ * listed instead.
+ * </p>
+ */
+public class MixedCrudScenario implements Scenario {
+
+    static final String GET_BY_ID = "GET /api/player/{id}";
+    static final String GET_ALL = "GET /api/player";
+    static final String UPDATE = "PUT /api/player/{id}";
+    static final String DELETE = "DELETE /api/player/{id}";
+
+    private final PlayerRequests requests;
+    private final RateProfile rateProfile;
+    private final PlayerPool pool;
+
+    MixedCrudScenario(PlayerRequests requests, RateProfile rateProfile, PlayerPool pool) {
+        this.requests = requests;
+        this.rateProfile = rateProfile;
+        this.pool = pool;
+    }
+
+    @Override
+    public String name() {
+        return "mixed";
+    }
+
+    @Override
+    public RateProfile rateProfile() {
+        return rateProfile;
+    }
+
+    @Override
+    public ScenarioRequest nextRequest(long sequence) {
+        int dice = ThreadLocalRandom.current().nextInt(100);
+        if (dice >= 55 && dice < 60) {
+            return new ScenarioRequest(GET_ALL, requests.getAll(), null);
+        }
+        PlayerPool.PlayerRef player = dice < 90 ? pool.pick() : pool.take();
+        if (player == null) {
+            return new ScenarioRequest(GET_ALL, requests.getAll(), null);
+        }
+        if (dice < 55) {
+            return new ScenarioRequest(GET_BY_ID, requests.getById(player.id()), null);
+        }
+        if (dice < 90) {
+            return new ScenarioRequest(UPDATE,
+                    requests.update(player.id(), "Updated" + sequence, "Runner", player.email()), player.email());
+        }
+        return new ScenarioRequest(DELETE, requests.delete(player.id()), null);
+    }
+}
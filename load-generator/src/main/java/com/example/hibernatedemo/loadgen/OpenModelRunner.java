@@ -0,0 +1,162 @@
+package com.example.hibernatedemo.loadgen;
+
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a {@link Scenario} following an open workload model.
+ * <p>
+ * A single pacing thread releases the requests at the intended times of the
+ * {@link RateProfile} and hands each of them to its own virtual thread, so a slow
+ * response never delays the following requests. Latencies are measured from the
+ * intended send time rather than the actual one: when the pacing thread or the client
+ * falls behind, the waiting time is part of the measured latency, which avoids
+ * coordinated omission.
+ * </p>
+ * <p>
+ * A request due while {@code maxInFlight} requests are outstanding is dropped. It has no
+ * latency, so the percentiles of its operation are reported as invalid rather than
+ * silently leaving out the slowest requests.
+ * </p>
+ * <p>
+ * Every second, the interval histograms of all operations are appended to
+ * {@code <scenario>.hlog} so that the run can be inspected over time.
+ * </p>
+ */
+public class OpenModelRunner {
+
+    private static final long LOG_INTERVAL_MILLIS = 1_000;
+
+    private final HttpClient client;
+    private final int maxInFlight;
+    private final Path outputDirectory;
+
+    public OpenModelRunner(HttpClient client, int maxInFlight, Path outputDirectory) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Runs the scenario until the end of its rate profile and waits for all outstanding responses.
+     *
+     * @param scenario the scenario to play
+     * @return the measurements of the run
+     * @throws IOException          if the interval log cannot be written
+     * @throws InterruptedException if the run is interrupted
+     */
+    public ScenarioResult run(Scenario scenario) throws IOException, InterruptedException {
+        Map<String, OperationStats> stats = new ConcurrentSkipListMap<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        RateProfile profile = scenario.rateProfile();
+        Files.createDirectories(outputDirectory);
+
+        try (IntervalLog intervalLog = new IntervalLog(outputDirectory.resolve(scenario.name() + ".hlog"), stats)) {
+            long start = System.nanoTime();
+            try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+                long sequence = 0;
+                for (long offset = 0; offset < profile.durationNanos(); offset = profile.nextOffsetNanos(offset)) {
+                    long intendedStart = start + offset;
+                    long now;
+                    while ((now = System.nanoTime()) < intendedStart) {
+                        LockSupport.parkNanos(intendedStart - now);
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException("Scenario " + scenario.name() + " interrupted");
+                    }
+
+                    Scenario.ScenarioRequest request = scenario.nextRequest(sequence++);
+                    OperationStats operation = stats.computeIfAbsent(request.operation(), OperationStats::new);
+                    if (!inFlight.tryAcquire()) {
+                        operation.recordDropped();
+                        continue;
+                    }
+                    senders.execute(() -> {
+                        try {
+                            send(scenario, request, operation, intendedStart);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } // closing the executor waits for the outstanding responses
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            intervalLog.close();
+            return new ScenarioResult(scenario.name(), elapsed, stats);
+        }
+    }
+
+    private void send(Scenario scenario, Scenario.ScenarioRequest request, OperationStats operation, long intendedStart) {
+        try {
+            HttpResponse<String> response = client.send(request.request(), HttpResponse.BodyHandlers.ofString());
+            operation.recordResponse(micros(System.nanoTime() - intendedStart), response.statusCode());
+            scenario.onResponse(request, response);
+        } catch (IOException e) {
+            operation.recordFailure(micros(System.nanoTime() - intendedStart));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Writes the interval histograms of every operation to an HdrHistogram log file.
+     */
+    private static final class IntervalLog implements AutoCloseable {
+
+        private final HistogramLogWriter writer;
+        private final Map<String, OperationStats> stats;
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private boolean closed;
+
+        IntervalLog(Path file, Map<String, OperationStats> stats) throws IOException {
+            this.writer = new HistogramLogWriter(file.toFile());
+            this.stats = stats;
+            long startMillis = System.currentTimeMillis();
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputLegend();
+            scheduler.scheduleAtFixedRate(this::flush, LOG_INTERVAL_MILLIS, LOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void flush() {
+            if (closed) {
+                return;
+            }
+            for (OperationStats operation : stats.values()) {
+                writer.outputIntervalHistogram(operation.takeInterval());
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            scheduler.shutdown();
+            scheduler.awaitTermination(LOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            flush();
+            synchronized (this) {
+                if (!closed) {
+                    closed = true;
+                    writer.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.hibernatedemo.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of one operation of a scenario.
+ * <p>
+ * Latencies are recorded in microseconds into a {@link Recorder}, which sender threads
+ * write to without locking. The interval logger periodically moves the recorded values
+ * into {@link #total()}.
+ * </p>
+ */
+public class OperationStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String operation;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentSkipListMap<>();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private Histogram recycled;
+
+    public OperationStats(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param latencyMicros time between the intended send time and the response
+     * @param statusCode    HTTP status of the response
+     */
+    void recordResponse(long latencyMicros, int statusCode) {
+        recorder.recordValue(latencyMicros);
+        statusCounts.computeIfAbsent(statusCode, _ -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records a request that failed without response (timeout, connection refused...).
+     *
+     * @param latencyMicros time between the intended send time and the failure
+     */
+    void recordFailure(long latencyMicros) {
+        recorder.recordValue(latencyMicros);
+        failures.increment();
+    }
+
+    /**
+     * Records a request that was not sent because too many requests were outstanding.
+     */
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Moves the values recorded since the last call into {@link #total()}.
+     * Must only be called by a single thread at a time.
+     *
+     * @return the histogram of the interval, tagged with the operation name
+     */
+    Histogram takeInterval() {
+        Histogram interval = recorder.getIntervalHistogram(recycled);
+        interval.setTag(operation.replaceAll("[^A-Za-z0-9]+", "_"));
+        total.add(interval);
+        recycled = interval;
+        return interval;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public Histogram total() {
+        return total;
+    }
+
+    public Map<Integer, LongAdder> statusCounts() {
+        return statusCounts;
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Tells whether the latency percentiles cover all the intended requests. Dropped
+     * requests have no latency, and they are the ones which would have been the slowest,
+     * so the percentiles of an operation with dropped requests are too optimistic.
+     *
+     * @return {@code true} when no request was dropped
+     */
+    public boolean percentilesValid() {
+        return dropped() == 0;
+    }
+
+    /**
+     * @return the number of responses with a status code of 400 or above, plus failed requests
+     */
+    public long errors() {
+        return failures() + statusCounts.entrySet().stream()
+                .filter(entry -> entry.getKey() >= 400)
+                .mapToLong(entry -> entry.getValue().sum())
+                .sum();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Players created during the run, shared between scenarios.
+ * <p>
+ * The registration scenario fills the pool and the mixed scenario reads, updates and
+ * removes players from it, so that GET/PUT/DELETE requests target existing rows.
+ * </p>
+ */
+public class PlayerPool {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final List<PlayerRef> players = new ArrayList<>();
+
+    /**
+     * Adds the player returned by a {@code POST /api/player} response.
+     *
+     * @param responseBody JSON body of the response
+     * @param email        email the player was registered with
+     */
+    public void addFromResponse(String responseBody, String email) {
+        Matcher matcher = ID_PATTERN.matcher(responseBody);
+        if (matcher.find()) {
+            add(new PlayerRef(Long.parseLong(matcher.group(1)), email));
+        }
+    }
+
+    public synchronized void add(PlayerRef player) {
+        players.add(player);
+    }
+
+    /**
+     * @return a random player of the pool, or {@code null} if the pool is empty
+     */
+    public synchronized PlayerRef pick() {
+        if (players.isEmpty()) {
+            return null;
+        }
+        return players.get(ThreadLocalRandom.current().nextInt(players.size()));
+    }
+
+    /**
+     * Removes a random player from the pool so that it is deleted only once.
+     *
+     * @return the removed player, or {@code null} if the pool is empty
+     */
+    public synchronized PlayerRef take() {
+        if (players.isEmpty()) {
+            return null;
+        }
+        int index = ThreadLocalRandom.current().nextInt(players.size());
+        PlayerRef last = players.removeLast();
+        if (index == players.size()) {
+            return last;
+        }
+        return players.set(index, last);
+    }
+
+    public synchronized int size() {
+        return players.size();
+    }
+
+    /**
+     * A player known to exist on the server.
+     *
+     * @param id    id generated by the server
+     * @param email unique email of the player
+     */
+    public record PlayerRef(long id, String email) {
+    }
+}
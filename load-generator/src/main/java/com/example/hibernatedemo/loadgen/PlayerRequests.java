@@ -0,0 +1,60 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+/**
+ * Builds the HTTP requests of the {@code /api/player} endpoints.
+ */
+class PlayerRequests {
+
+    private static final String PLAYER_ENDPOINT = "/api/player";
+
+    private final URI baseUrl;
+    private final Duration timeout;
+
+    PlayerRequests(URI baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+    }
+
+    HttpRequest getAll() {
+        return builder(PLAYER_ENDPOINT).GET().build();
+    }
+
+    HttpRequest getById(long id) {
+        return builder(PLAYER_ENDPOINT + "/" + id).GET().build();
+    }
+
+    HttpRequest getRandom() {
+        return builder(PLAYER_ENDPOINT + "/random").GET().build();
+    }
+
+    HttpRequest create(String name, String surname, String email) {
+        return builder(PLAYER_ENDPOINT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(name, surname, email)))
+                .build();
+    }
+
+    HttpRequest update(long id, String name, String surname, String email) {
+        return builder(PLAYER_ENDPOINT + "/" + id)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json(name, surname, email)))
+                .build();
+    }
+
+    HttpRequest delete(long id) {
+        return builder(PLAYER_ENDPOINT + "/" + id).DELETE().build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).timeout(timeout);
+    }
+
+    // Generated values only contain letters, digits, '-', '.' and '@' so no escaping is needed
+    private static String json(String name, String surname, String email) {
+        return "{\"name\":\"" + name + "\",\"surname\":\"" + surname + "\",\"email\":\"" + email + "\"}";
+    }
+}
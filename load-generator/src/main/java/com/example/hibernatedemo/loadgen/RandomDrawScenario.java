@@ -0,0 +1,32 @@
+package com.example.hibernatedemo.loadgen;
+
+/**
+ * Repeated lottery draws on {@code GET /api/player/random} at a constant rate.
+ */
+public class RandomDrawScenario implements Scenario {
+
+    static final String DRAW = "GET /api/player/random";
+
+    private final PlayerRequests requests;
+    private final RateProfile rateProfile;
+
+    RandomDrawScenario(PlayerRequests requests, RateProfile rateProfile) {
+        this.requests = requests;
+        this.rateProfile = rateProfile;
+    }
+
+    @Override
+    public String name() {
+        return "draw";
+    }
+
+    @Override
+    public RateProfile rateProfile() {
+        return rateProfile;
+    }
+
+    @Override
+    public ScenarioRequest nextRequest(long sequence) {
+        return new ScenarioRequest(DRAW, requests.getRandom(), null);
+    }
+}
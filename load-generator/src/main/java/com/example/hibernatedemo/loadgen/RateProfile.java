@@ -0,0 +1,65 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.time.Duration;
+
+/**
+ * Arrival schedule of an open-model load.
+ * <p>
+ * The rate grows linearly from {@code startRate} to {@code peakRate} during the ramp,
+ * then stays at {@code peakRate} during the hold phase. The schedule only depends on
+ * time, never on how fast the server answers, which keeps the measurements free of
+ * coordinated omission.
+ * </p>
+ *
+ * @param startRate requests per second at the beginning of the ramp
+ * @param peakRate  requests per second at the end of the ramp and during the hold phase
+ * @param ramp      duration of the ramp, may be zero
+ * @param hold      duration of the constant-rate phase, may be zero
+ */
+public record RateProfile(double startRate, double peakRate, Duration ramp, Duration hold) {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    public RateProfile {
+        if (startRate <= 0 || peakRate <= 0) {
+            throw new IllegalArgumentException("Rates must be strictly positive");
+        }
+    }
+
+    /**
+     * Creates a profile sending requests at a constant rate.
+     *
+     * @param rate     requests per second
+     * @param duration duration of the load
+     * @return the constant-rate profile
+     */
+    public static RateProfile constant(double rate, Duration duration) {
+        return new RateProfile(rate, rate, Duration.ZERO, duration);
+    }
+
+    /**
+     * @return the total duration of the profile in nanoseconds
+     */
+    public long durationNanos() {
+        return ramp.toNanos() + hold.toNanos();
+    }
+
+    /**
+     * Computes the intended send time of the request following the one sent at {@code offsetNanos}.
+     *
+     * @param offsetNanos intended send time of the previous request, relative to the start of the run
+     * @return the intended send time of the next request, or a value greater than
+     * {@link #durationNanos()} when the profile is over
+     */
+    public long nextOffsetNanos(long offsetNanos) {
+        return offsetNanos + (long) (NANOS_PER_SECOND / rateAt(offsetNanos));
+    }
+
+    private double rateAt(long offsetNanos) {
+        long rampNanos = ramp.toNanos();
+        if (offsetNanos >= rampNanos) {
+            return peakRate;
+        }
+        return startRate + (peakRate - startRate) * offsetNanos / rampNanos;
+    }
+}
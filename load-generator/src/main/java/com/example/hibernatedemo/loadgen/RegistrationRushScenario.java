@@ -0,0 +1,50 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.net.http.HttpResponse;
+
+/**
+ * Registration rush: {@code POST /api/player} with a ramped arrival rate.
+ * <p>
+ * Every request registers a new player with a unique email. Created players are
+ * added to the shared {@link PlayerPool} for the following scenarios.
+ * </p>
+ */
+public class RegistrationRushScenario implements Scenario {
+
+    static final String CREATE = "POST /api/player";
+
+    private final PlayerRequests requests;
+    private final RateProfile rateProfile;
+    private final PlayerPool pool;
+    private final String runId;
+
+    RegistrationRushScenario(PlayerRequests requests, RateProfile rateProfile, PlayerPool pool, String runId) {
+        this.requests = requests;
+        this.rateProfile = rateProfile;
+        this.pool = pool;
+        this.runId = runId;
+    }
+
+    @Override
+    public String name() {
+        return "registration";
+    }
+
+    @Override
+    public RateProfile rateProfile() {
+        return rateProfile;
+    }
+
+    @Override
+    public ScenarioRequest nextRequest(long sequence) {
+        String email = "load-" + runId + "-" + sequence + "@example.com";
+        return new ScenarioRequest(CREATE, requests.create("Load" + sequence, "Runner", email), email);
+    }
+
+    @Override
+    public void onResponse(ScenarioRequest request, HttpResponse<String> response) {
+        if (response.statusCode() == 201) {
+            pool.addFromResponse(response.body(), request.email());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * A load scenario played by the {@link OpenModelRunner}.
+ * <p>
+ * The runner asks the scenario for a new request at every tick of its {@link RateProfile}
+ * and hands the response back once received. Implementations are called concurrently
+ * from many virtual threads and must be thread-safe.
+ * </p>
+ */
+public interface Scenario {
+
+    /**
+     * @return the name used for the report files of this scenario
+     */
+    String name();
+
+    /**
+     * @return the arrival schedule of the scenario
+     */
+    RateProfile rateProfile();
+
+    /**
+     * Builds the request to send at the given tick.
+     *
+     * @param sequence zero-based index of the request within the scenario
+     * @return the request to send, tagged with the operation it measures
+     */
+    ScenarioRequest nextRequest(long sequence);
+
+    /**
+     * Called once a response has been received, e.g. to remember the ids of created players.
+     *
+     * @param request  the request that was sent
+     * @param response the response received
+     */
+    default void onResponse(ScenarioRequest request, HttpResponse<String> response) {
+    }
+
+    /**
+     * A request and the name of the operation its latency is recorded under.
+     *
+     * @param operation name of the measured operation, e.g. {@code POST /api/player}
+     * @param request   the HTTP request to send
+     * @param email     email of the player sent in the body, or {@code null} when there is no body
+     */
+    record ScenarioRequest(String operation, HttpRequest request, String email) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.hibernatedemo.loadgen;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Measurements of a completed scenario run.
+ *
+ * @param scenario   name of the scenario
+ * @param elapsed    time between the first intended request and the last response
+ * @param operations measurements per operation, keyed by operation name
+ */
+public record ScenarioResult(String scenario, Duration elapsed, Map<String, OperationStats> operations) {
+
+    /**
+     * @param operation the measured operation
+     * @return the number of responses per second received for the operation
+     */
+    public double throughput(OperationStats operation) {
+        return operation.total().getTotalCount() / (elapsed.toNanos() / 1_000_000_000d);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.hibernatedemo.loadgen;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Class tests for {@link LatencyReport}.
+ * <p>
+ * Verifies that the percentiles of an operation with dropped requests are flagged as
+ * invalid in {@code summary.csv} and on the console, as the dropped requests are missing
+ * from its latency histogram.
+ * </p>
+ */
+class LatencyReportTest {
+
+    @TempDir
+    private Path outputDirectory;
+
+    @Test
+    void write_whenRequestsDropped_thenFlagsThePercentilesAsInvalid() throws Exception {
+        OperationStats complete = stats("GET /api/player/{id}", 0);
+        OperationStats dropping = stats("POST /api/player", 3);
+        ScenarioResult result = result(complete, dropping);
+
+        new LatencyReport(outputDirectory).write(result);
+
+        List<String> summary = Files.readAllLines(outputDirectory.resolve("summary.csv"), StandardCharsets.UTF_8);
+        int column = List.of(summary.get(0).split(",")).indexOf("percentiles_valid");
+        assertThat(summary).hasSize(3);
+        assertThat(summary.get(1).split(",")[column]).isEqualTo("true");
+        assertThat(summary.get(2).split(",")[column]).isEqualTo("false");
+        assertThat(LatencyReport.consoleLine(result, complete)).doesNotContain("INVALID");
+        assertThat(LatencyReport.consoleLine(result, dropping)).contains("INVALID PERCENTILES");
+    }
+
+    private static OperationStats stats(String operation, int dropped) {
+        OperationStats stats = new OperationStats(operation);
+        for (int i = 1; i <= 10; i++) {
+            stats.recordResponse(i * 1_000L, 200);
+        }
+        for (int i = 0; i < dropped; i++) {
+            stats.recordDropped();
+        }
+        stats.takeInterval();
+        return stats;
+    }
+
+    private static ScenarioResult result(OperationStats... operations) {
+        Map<String, OperationStats> stats = new TreeMap<>();
+        for (OperationStats operation : operations) {
+            stats.put(operation.operation(), operation);
+        }
+        return new ScenarioResult("registration", Duration.ofSeconds(1), stats);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.hibernatedemo.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Class tests for {@link PlayerPool}.
+ * <p>
+ * Verifies that {@link PlayerPool#take()} hands out every player exactly once, whatever
+ * the position the swap-remove picks, and that the IDs are parsed from the responses.
+ * </p>
+ */
+class PlayerPoolTest {
+
+    @Test
+    void take_whenEmpty_thenReturnsNull() {
+        PlayerPool pool = new PlayerPool();
+
+        assertNull(pool.take());
+        assertNull(pool.pick());
+    }
+
+    @Test
+    void take_ShouldReturnEveryPlayerExactlyOnce() {
+        PlayerPool pool = new PlayerPool();
+        for (long id = 1; id <= 1000; id++) {
+            pool.add(new PlayerPool.PlayerRef(id, "player" + id + "@example.com"));
+        }
+
+        List<Long> taken = new ArrayList<>();
+        PlayerPool.PlayerRef player;
+        while ((player = pool.take()) != null) {
+            taken.add(player.id());
+            assertEquals(1000 - taken.size(), pool.size());
+        }
+
+        assertThat(taken).containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, 1000).boxed().toList());
+    }
+
+    @Test
+    void take_whenSinglePlayer_thenReturnsItAndEmptiesThePool() {
+        PlayerPool pool = new PlayerPool();
+        PlayerPool.PlayerRef player = new PlayerPool.PlayerRef(7L, "john@example.com");
+        pool.add(player);
+
+        assertEquals(player, pool.take());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void addFromResponse_ShouldParseTheIdOfTheCreatedPlayer() {
+        PlayerPool pool = new PlayerPool();
+
+        pool.addFromResponse("{\"id\" : 42,\"name\":\"John\",\"email\":\"john@example.com\"}", "john@example.com");
+        pool.addFromResponse("{\"status\":409,\"message\":\"Database constraint violation\"}", "jane@example.com");
+
+        assertEquals(1, pool.size());
+        assertEquals(new PlayerPool.PlayerRef(42L, "john@example.com"), pool.pick());
+    }
+}
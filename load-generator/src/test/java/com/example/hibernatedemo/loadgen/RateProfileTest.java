@@ -0,0 +1,70 @@
+package com.example.hibernatedemo.loadgen;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Class tests for {@link RateProfile}.
+ * <p>
+ * Verifies the spacing of the intended send times during the ramp and the hold phases,
+ * including a ramp of zero length.
+ * </p>
+ */
+class RateProfileTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void nextOffsetNanos_whenConstant_thenSpacesRequestsEvenly() {
+        RateProfile profile = RateProfile.constant(100, Duration.ofSeconds(1));
+
+        assertEquals(10_000_000L, profile.nextOffsetNanos(0));
+        assertEquals(510_000_000L, profile.nextOffsetNanos(500_000_000L));
+        assertEquals(SECOND, profile.durationNanos());
+    }
+
+    @Test
+    void nextOffsetNanos_whenRamping_thenUsesTheInterpolatedRate() {
+        RateProfile profile = new RateProfile(10, 110, Duration.ofSeconds(10), Duration.ofSeconds(5));
+
+        assertEquals(100_000_000L, profile.nextOffsetNanos(0));
+        // Halfway through the ramp, the rate is 60 requests per second
+        assertEquals(5 * SECOND + SECOND / 60, profile.nextOffsetNanos(5 * SECOND));
+        // From the end of the ramp, the rate is the peak rate
+        assertEquals(10 * SECOND + SECOND / 110, profile.nextOffsetNanos(10 * SECOND));
+        assertEquals(15 * SECOND, profile.durationNanos());
+    }
+
+    @Test
+    void nextOffsetNanos_whenZeroLengthRamp_thenStartsAtThePeakRate() {
+        RateProfile profile = new RateProfile(10, 100, Duration.ZERO, Duration.ofSeconds(1));
+
+        assertEquals(10_000_000L, profile.nextOffsetNanos(0));
+    }
+
+    @Test
+    void nextOffsetNanos_ShouldSendTheIntegralOfTheRateOverTheRamp() {
+        RateProfile profile = new RateProfile(100, 300, Duration.ofSeconds(1), Duration.ZERO);
+
+        int requests = 0;
+        for (long offset = 0; offset < profile.durationNanos(); offset = profile.nextOffsetNanos(offset)) {
+            requests++;
+        }
+
+        // The average rate over the linear ramp is 200 requests per second
+        assertThat(requests).isBetween(196, 204);
+    }
+
+    @Test
+    void constructor_KO_whenRateNotPositive_thenThrows() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new RateProfile(0, 100, Duration.ofSeconds(1), Duration.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RateProfile.constant(-1, Duration.ofSeconds(1)));
+    }
+}
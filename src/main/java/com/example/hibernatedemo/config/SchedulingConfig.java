@@ -0,0 +1,12 @@
+package com.example.hibernatedemo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the scheduled tasks of the application, such as the change feed polling.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,16 +1,24 @@
 package com.example.hibernatedemo.controller;
 
+import com.example.hibernatedemo.dto.BulkDeleteRequest;
+import com.example.hibernatedemo.dto.BulkResult;
+import com.example.hibernatedemo.dto.BulkUpdateRequest;
 import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.service.IdempotencyService;
 import com.example.hibernatedemo.service.PlayerService;
+import com.example.hibernatedemo.service.RosterSnapshotService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/player")
@@ -18,17 +26,43 @@ public class PlayerController {
 
     private static final Logger logger = LoggerFactory.getLogger(PlayerController.class);
     private final PlayerService playerService;
+    private final RosterSnapshotService rosterSnapshotService;
+    private final IdempotencyService idempotencyService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
 
-    public PlayerController(PlayerService playerService) {
+    public PlayerController(PlayerService playerService, RosterSnapshotService rosterSnapshotService,
+                            IdempotencyService idempotencyService) {
         this.playerService = playerService;
+        this.rosterSnapshotService = rosterSnapshotService;
+        this.idempotencyService = idempotencyService;
     }
 
+    /**
+     * Returns the roster, or one page of it, as pre-rendered JSON bytes from the
+     * {@link RosterSnapshotService}. The body is gzip encoded when the client accepts it,
+     * and {@code 304 Not Modified} is returned when the client copy is still current.
+     */
     @GetMapping
-    public List<Player> getAllPlayers() {
-        logger.info("Received request to GET /player/");
-        return playerService.getAllPlayers();
+    public ResponseEntity<byte[]> getAllPlayers(@RequestParam(required = false) Integer page,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                WebRequest request) {
+        logger.info("Received request to GET /player/ with page={}", page);
+        RosterSnapshotService.RosterBody roster = rosterSnapshotService.getRoster(page, acceptsGzip(acceptEncoding));
+        if (request.checkNotModified(roster.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(roster.etag())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(roster.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (roster.gzipped()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(roster.bytes());
     }
 
     @GetMapping("/{id}")
@@ -39,17 +73,23 @@ public class PlayerController {
         return ResponseEntity.ok(player);
     }
 
+    /**
+     * Creates a player. A retry sending the same {@code Idempotency-Key} gets the response
+     * of the first request instead of creating the player again.
+     */
     @PostMapping
-    public ResponseEntity<Player> createPlayer(@Valid @RequestBody Player player) {
+    public ResponseEntity<Player> createPlayer(@Valid @RequestBody Player player,
+                                               @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
             String jsonString = objectMapper.writeValueAsString(player);
             logger.info("Received request to POST /player/ with json data: {}", jsonString);
         } catch (Exception e) {
             logger.error("Received request to POST /player/ - Error converting data to JSON: {}", e.getMessage());
         }
-        Player createdPlayer = playerService.createPlayer(player);
-        logger.info("Successfully returned 201 CREATED for /player/{}", createdPlayer.getId());
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdPlayer);
+        ResponseEntity<Player> response = idempotencyService.execute(idempotencyKey, "create-player", player, Player.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(playerService.createPlayer(player)));
+        logger.info("Successfully returned 201 CREATED for /player/{}", response.getBody().getId());
+        return response;
     }
 
     @PutMapping("/{id}")
@@ -73,11 +113,83 @@ public class PlayerController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkResult> deletePlayers(@Valid @RequestBody BulkDeleteRequest request) {
+        logger.info("Received request to POST /player/bulk-delete for {} ids", request.ids().size());
+        int affected = playerService.deletePlayers(request.ids());
+        logger.info("Successfully returned 200 OK for /player/bulk-delete, {} players deleted", affected);
+        return ResponseEntity.ok(new BulkResult(affected));
+    }
+
+    /**
+     * Deletes the players matching all the given filters. Without any filter, all the
+     * players are only deleted when {@code all=true} is given.
+     */
+    @DeleteMapping
+    public ResponseEntity<BulkResult> deletePlayersMatching(@RequestParam(required = false) String name,
+                                                            @RequestParam(required = false) String surname,
+                                                            @RequestParam(required = false) String emailDomain,
+                                                            @RequestParam(defaultValue = "false") boolean all) {
+        logger.info("Received request to DELETE /player/ with name={} surname={} emailDomain={} all={}",
+                name, surname, emailDomain, all);
+        int affected = playerService.deletePlayersMatching(name, surname, emailDomain, all);
+        logger.info("Successfully returned 200 OK for DELETE /player/, {} players deleted", affected);
+        return ResponseEntity.ok(new BulkResult(affected));
+    }
+
+    @PatchMapping
+    public ResponseEntity<BulkResult> updatePlayers(@Valid @RequestBody BulkUpdateRequest request) {
+        logger.info("Received request to PATCH /player/ for {} ids with name={} surname={}",
+                request.ids().size(), request.name(), request.surname());
+        int affected = playerService.updatePlayers(request.ids(), request.name(), request.surname());
+        logger.info("Successfully returned 200 OK for PATCH /player/, {} players updated", affected);
+        return ResponseEntity.ok(new BulkResult(affected));
+    }
+
+    /**
+     * Draws a random player. A retry sending the same {@code Idempotency-Key} gets the
+     * winner of the first draw instead of drawing again.
+     */
     @GetMapping("/random")
-    public ResponseEntity<Player> getRandomPlayer() {
+    public ResponseEntity<Player> getRandomPlayer(@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         logger.info("Received request to GET /player/random");
-        Player player = playerService.getRandomPlayer();
+        ResponseEntity<Player> response = idempotencyService.execute(idempotencyKey, "draw", null, Player.class,
+                () -> ResponseEntity.ok(playerService.getRandomPlayer()));
         logger.info("Successfully returned 200 OK for /player/random");
-        return ResponseEntity.ok(player);
+        return response;
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header accepts gzip: listed as {@code gzip}
+     * or {@code x-gzip}, or else covered by {@code *}, with a quality value above zero.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return quality != null && quality > 0;
     }
 }
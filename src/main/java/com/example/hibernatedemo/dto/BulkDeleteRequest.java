@@ -0,0 +1,16 @@
+package com.example.hibernatedemo.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * Request body of a bulk delete of players by ID.
+ *
+ * @param ids the IDs of the players to delete
+ */
+public record BulkDeleteRequest(
+        @NotEmpty(message = "Ids cannot be empty")
+        List<@NotNull(message = "Id cannot be null") Long> ids) {
+}
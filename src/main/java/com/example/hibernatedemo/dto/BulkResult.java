@@ -0,0 +1,9 @@
+package com.example.hibernatedemo.dto;
+
+/**
+ * Response body of a bulk operation.
+ *
+ * @param affected the number of players deleted or updated
+ */
+public record BulkResult(int affected) {
+}
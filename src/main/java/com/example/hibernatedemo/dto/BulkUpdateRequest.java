@@ -0,0 +1,36 @@
+package com.example.hibernatedemo.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request body of a bulk update of players.
+ * <p>
+ * The given fields are set on all the players identified by {@link #ids}, the fields
+ * left {@code null} are unchanged. The email is not part of it as it is unique per player.
+ * </p>
+ *
+ * @param ids     the IDs of the players to update
+ * @param name    the new given name, or {@code null} to keep the current one
+ * @param surname the new surname, or {@code null} to keep the current one
+ */
+public record BulkUpdateRequest(
+        @NotEmpty(message = "Ids cannot be empty")
+        List<@NotNull(message = "Id cannot be null") Long> ids,
+        @Pattern(regexp = ".*\\S.*", message = "Name cannot be blank")
+        @Size(max = 30, message = "Name must be at most 30 characters")
+        String name,
+        @Pattern(regexp = ".*\\S.*", message = "Surname cannot be blank")
+        @Size(max = 30, message = "Surname must be at most 30 characters")
+        String surname) {
+
+    @AssertTrue(message = "At least one field to update must be provided")
+    public boolean isAnyFieldSet() {
+        return name != null || surname != null;
+    }
+}
@@ -82,4 +82,49 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
 
+    /**
+     * Handles a bulk operation requested without the criteria limiting it.
+     */
+    @ExceptionHandler(InvalidBulkRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidBulkRequest(InvalidBulkRequestException ex) {
+        logger.warn("InvalidBulkRequestException occurred: {}", ex.getMessage());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.BAD_REQUEST.value());
+        body.put("message", ex.getMessage());
+        body.put("timestamp", LocalDateTime.now());
+        body.put("details", "Give a filter, or all=true to delete all the players");
+
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles a request reusing an idempotency key whose first request is still in progress.
+     */
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyConflict(IdempotencyKeyConflictException ex) {
+        logger.warn("IdempotencyKeyConflictException occurred: {}", ex.getMessage());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("message", ex.getMessage());
+        body.put("timestamp", LocalDateTime.now());
+        body.put("details", "Retry once the first request has completed");
+
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles a malformed idempotency key, or one reused for a different request.
+     */
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidIdempotencyKey(InvalidIdempotencyKeyException ex) {
+        logger.warn("InvalidIdempotencyKeyException occurred: {}", ex.getMessage());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.UNPROCESSABLE_ENTITY.value());
+        body.put("message", ex.getMessage());
+        body.put("timestamp", LocalDateTime.now());
+        body.put("details", "Use a new idempotency key for a different request");
+
+        return new ResponseEntity<>(body, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
 }
@@ -0,0 +1,12 @@
+package com.example.hibernatedemo.exception;
+
+/**
+ * Exception thrown when a request reuses an {@code Idempotency-Key} whose first request
+ * is still in progress after the wait timeout.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String key) {
+        super("A request with idempotency key " + key + " is still in progress");
+    }
+}
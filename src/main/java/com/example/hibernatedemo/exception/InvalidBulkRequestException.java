@@ -0,0 +1,12 @@
+package com.example.hibernatedemo.exception;
+
+/**
+ * Exception thrown when a bulk operation is requested without the criteria needed to
+ * limit it, such as a delete with no filter and no explicit request to delete all the players.
+ */
+public class InvalidBulkRequestException extends RuntimeException {
+
+    public InvalidBulkRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.hibernatedemo.exception;
+
+/**
+ * Exception thrown when an {@code Idempotency-Key} is malformed or was already used
+ * for a different request.
+ */
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
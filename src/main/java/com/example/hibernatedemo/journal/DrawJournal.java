@@ -0,0 +1,342 @@
+package com.example.hibernatedemo.journal;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of the lottery draws, kept apart from the {@code player} database.
+ * <p>
+ * Records are written through a memory-mapped region of the file, mapped
+ * {@code draw.journal.segment-size} bytes at a time, and made durable by a flusher
+ * thread which forces the written range to disk. The flusher waits
+ * {@code draw.journal.group-commit-ms} before each force so that concurrent draws share
+ * a single fsync. Once the records are on disk, their end is written to the header as
+ * the synced end and forced in turn, so that the header never points past data that may
+ * be missing. When {@code draw.journal.sync-on-append} is set, {@link #append} only
+ * returns once its record is covered by the synced end.
+ * </p>
+ * <p>
+ * On startup, the journal is scanned with the {@link DrawJournalReader}. The records
+ * past the synced end were never acknowledged and may have been partially written in
+ * any order, so everything from the first invalid one is truncated. A corruption before
+ * the synced end prevents the startup, so that no audited draw is silently dropped.
+ * </p>
+ */
+@Component
+public class DrawJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(DrawJournal.class);
+    private final Path path;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final long segmentSize;
+    private final long groupCommitNanos;
+    private final boolean syncOnAppend;
+    private final CRC32C crc = new CRC32C();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object headerLock = new Object();
+    private final ByteBuffer syncedEndBytes = ByteBuffer.allocate(8);
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final Thread flusher;
+
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long writePosition;
+    private long syncedPosition;
+    private long headerSyncedEnd;
+    private long lastTimestamp;
+    private boolean closed;
+    private Exception flushFailure;
+
+    /**
+     * Opens the journal, creating it if needed, and starts its flusher thread.
+     *
+     * @param path          the journal file
+     * @param segmentSize   the number of bytes mapped at a time
+     * @param groupCommitMs the delay during which appends are grouped before an fsync
+     * @param syncOnAppend  whether {@link #append} waits for its record to be durable
+     * @throws IOException           if the journal cannot be opened or recovered
+     * @throws IllegalStateException if the journal is used by another process or corrupted
+     */
+    public DrawJournal(@Value("${draw.journal.path:./data/draw-journal.dat}") String path,
+                       @Value("${draw.journal.segment-size:1048576}") long segmentSize,
+                       @Value("${draw.journal.group-commit-ms:2}") long groupCommitMs,
+                       @Value("${draw.journal.sync-on-append:true}") boolean syncOnAppend) throws IOException {
+        this.path = Path.of(path).toAbsolutePath();
+        this.segmentSize = segmentSize;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMs);
+        this.syncOnAppend = syncOnAppend;
+
+        Files.createDirectories(this.path.getParent());
+        this.channel = FileChannel.open(this.path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.fileLock = lockFile();
+            this.writePosition = recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.syncedPosition = writePosition;
+        this.bufferStart = writePosition;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, writePosition, segmentSize);
+        this.flusher = Thread.ofPlatform().daemon().name("draw-journal-flusher").start(this::flushLoop);
+        logger.info("Draw journal {} opened at position {}", this.path, writePosition);
+    }
+
+    /**
+     * Appends a draw to the journal.
+     *
+     * @param seed           the seed of the random generator used for the draw
+     * @param populationSize the number of players the winners were drawn from
+     * @param winnerIds      the IDs of the winners, in draw order
+     * @return the appended record
+     * @throws UncheckedIOException  if the record cannot be written or made durable
+     * @throws IllegalStateException if the journal is closed
+     */
+    public DrawRecord append(long seed, long populationSize, long... winnerIds) {
+        long[] winners = winnerIds.clone();
+        DrawRecord record;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Draw journal " + path + " is closed");
+            }
+            // Taken under the lock, and never before the previous record even if the clock
+            // steps back, so that the timestamps follow the journal order
+            lastTimestamp = Math.max(lastTimestamp, System.currentTimeMillis());
+            record = new DrawRecord(Instant.ofEpochMilli(lastTimestamp), seed, populationSize, winners);
+            int payloadSize = record.payloadSize();
+            int recordSize = DrawRecord.RECORD_OVERHEAD + payloadSize;
+            if (buffer.remaining() < recordSize) {
+                remap(recordSize);
+            }
+            int start = buffer.position();
+            buffer.putInt(payloadSize)
+                    .putLong(record.timestamp().toEpochMilli())
+                    .putLong(record.seed())
+                    .putLong(record.populationSize())
+                    .putInt(record.winnerIds().length);
+            for (long winnerId : record.winnerIds()) {
+                buffer.putLong(winnerId);
+            }
+            crc.reset();
+            crc.update(buffer.slice(start, 4 + payloadSize));
+            buffer.putInt((int) crc.getValue());
+            writePosition += recordSize;
+            long end = writePosition;
+            flushRequested.signal();
+
+            while (syncOnAppend && syncedPosition < end) {
+                if (flushFailure != null) {
+                    throw new UncheckedIOException("Draw journal " + path + " cannot be synced",
+                            new IOException(flushFailure));
+                }
+                synced.awaitUninterruptibly();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Draw journal " + path + " cannot be written", e);
+        } finally {
+            lock.unlock();
+        }
+        logger.debug("Appended {}", record);
+        return record;
+    }
+
+    /**
+     * @return the journal file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Makes all the appended records durable, stops the flusher and closes the file.
+     */
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+        buffer.force();
+        writeSyncedEnd(writePosition);
+        fileLock.release();
+        channel.close();
+        logger.info("Draw journal {} closed at position {}", path, writePosition);
+    }
+
+    private FileLock lockFile() throws IOException {
+        FileLock acquired;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            throw new IllegalStateException("Draw journal " + path + " is already in use");
+        }
+        return acquired;
+    }
+
+    /**
+     * Validates the existing records and truncates the records past the synced end.
+     *
+     * @return the position where the next record is written
+     */
+    private long recover() throws IOException {
+        if (channel.size() == 0) {
+            writeHeader();
+            return DrawRecord.HEADER_SIZE;
+        }
+        DrawJournalReader.Scan scan = DrawJournalReader.scan(channel,
+                record -> lastTimestamp = record.timestamp().toEpochMilli());
+        if (!scan.isClean() && !scan.isTornTail()) {
+            throw new IllegalStateException("Draw journal " + path + " is corrupted: " + scan.error()
+                    + ", check it with DrawJournalVerifier");
+        }
+        if (scan.validEnd() < DrawRecord.HEADER_SIZE) {
+            logger.warn("Draw journal {} has a torn header, rewriting it", path);
+            channel.truncate(0);
+            writeHeader();
+            return DrawRecord.HEADER_SIZE;
+        }
+        if (!scan.isClean()) {
+            logger.warn("Draw journal {} ends with unsynced torn records ({}), truncating {} bytes",
+                    path, scan.error(), scan.fileSize() - scan.validEnd());
+        }
+        // Also drops the stale bytes a crash may have left after the end marker
+        channel.truncate(scan.validEnd());
+        writeSyncedEnd(scan.validEnd());
+        logger.info("Draw journal {} contains {} draws", path, scan.records());
+        return scan.validEnd();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DrawRecord.HEADER_SIZE)
+                .putInt(DrawRecord.MAGIC)
+                .putInt(DrawRecord.FORMAT_VERSION)
+                .putLong(DrawRecord.HEADER_SIZE)
+                .flip();
+        channel.write(header, 0);
+        channel.force(true);
+        headerSyncedEnd = DrawRecord.HEADER_SIZE;
+    }
+
+    /**
+     * Records in the header that the records up to {@code end} are durable. Must only be
+     * called once they have been forced to disk.
+     */
+    private void writeSyncedEnd(long end) throws IOException {
+        synchronized (headerLock) {
+            // The flusher and a remap may race, the synced end never goes backwards
+            if (end <= headerSyncedEnd) {
+                return;
+            }
+            channel.write(syncedEndBytes.clear().putLong(0, end), DrawRecord.SYNCED_END_OFFSET);
+            channel.force(false);
+            headerSyncedEnd = end;
+        }
+    }
+
+    /**
+     * Maps the next region of the file, starting right after the last record so that
+     * the journal has no gap. Must be called with the lock held.
+     */
+    private void remap(int minimumSize) throws IOException {
+        buffer.force();
+        writeSyncedEnd(writePosition);
+        syncedPosition = writePosition;
+        synced.signalAll();
+        bufferStart = writePosition;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, writePosition, Math.max(segmentSize, minimumSize));
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && syncedPosition >= writePosition) {
+                    flushRequested.awaitUninterruptibly();
+                }
+                if (syncedPosition >= writePosition) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Let the concurrent draws join this fsync
+            if (groupCommitNanos > 0) {
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+
+            MappedByteBuffer target;
+            int from;
+            int length;
+            long end;
+            lock.lock();
+            try {
+                end = writePosition;
+                target = buffer;
+                from = (int) (syncedPosition - bufferStart);
+                length = (int) (end - syncedPosition);
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (length > 0) {
+                    target.force(from, length);
+                    writeSyncedEnd(end);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Draw journal {} cannot be synced: {}", path, e.getMessage(), e);
+                lock.lock();
+                try {
+                    flushFailure = e;
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                syncedPosition = Math.max(syncedPosition, end);
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.hibernatedemo.journal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the records of a {@link DrawJournal} file and checks their integrity.
+ * <p>
+ * Reading stops at the end marker (a zero length) or at the first invalid record. The
+ * header holds the synced end: the position up to which the records were durable, and
+ * acknowledged, before the last write. Past it, the pages of the memory-mapped file may
+ * have reached the disk in any order before a crash, so an invalid record there is a
+ * torn tail of unacknowledged draws. An invalid record before it means the journal is
+ * corrupted.
+ * </p>
+ */
+public final class DrawJournalReader {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private DrawJournalReader() {
+    }
+
+    /**
+     * Reads all the valid records of a journal.
+     *
+     * @param file the journal file
+     * @return the records, in append order
+     * @throws IOException if the file cannot be read or is not a draw journal
+     */
+    public static List<DrawRecord> readAll(Path file) throws IOException {
+        List<DrawRecord> records = new ArrayList<>();
+        scan(file, records::add);
+        return records;
+    }
+
+    /**
+     * Reads a journal and passes each valid record to the consumer.
+     *
+     * @param file     the journal file
+     * @param consumer called for each valid record, in append order
+     * @return the outcome of the scan
+     * @throws IOException if the file cannot be read or is not a draw journal
+     */
+    public static Scan scan(Path file, Consumer<DrawRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return scan(channel, consumer);
+        }
+    }
+
+    static Scan scan(FileChannel channel, Consumer<DrawRecord> consumer) throws IOException {
+        long fileSize = channel.size();
+        // The stream is not closed as it would close the channel
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel.position(0)), READ_BUFFER_SIZE));
+        if (fileSize < DrawRecord.HEADER_SIZE) {
+            return new Scan(0, 0, fileSize, 0, "truncated header");
+        }
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != DrawRecord.MAGIC || version != DrawRecord.FORMAT_VERSION) {
+            throw new IOException("Not a draw journal (version " + DrawRecord.FORMAT_VERSION + ")");
+        }
+        long syncedEnd = in.readLong();
+        if (syncedEnd < DrawRecord.HEADER_SIZE || syncedEnd > fileSize) {
+            // Not recoverable by truncation, as the durable records are unknown
+            return new Scan(0, DrawRecord.HEADER_SIZE, fileSize, Long.MAX_VALUE, "invalid synced end " + syncedEnd);
+        }
+
+        CRC32C crc = new CRC32C();
+        ByteBuffer lengthBytes = ByteBuffer.allocate(4);
+        long position = DrawRecord.HEADER_SIZE;
+        long records = 0;
+        while (fileSize - position >= 4) {
+            int length = in.readInt();
+            if (length == 0) {
+                break;
+            }
+            if (length < DrawRecord.FIXED_PAYLOAD_SIZE || length > DrawRecord.MAX_PAYLOAD_SIZE
+                    || (length - DrawRecord.FIXED_PAYLOAD_SIZE) % 8 != 0
+                    || position + DrawRecord.RECORD_OVERHEAD + length > fileSize) {
+                return invalid(records, position, fileSize, syncedEnd, "invalid record length " + length);
+            }
+
+            byte[] payload = new byte[length];
+            int storedCrc;
+            try {
+                in.readFully(payload);
+                storedCrc = in.readInt();
+            } catch (EOFException e) {
+                return invalid(records, position, fileSize, syncedEnd, "truncated record");
+            }
+            crc.reset();
+            crc.update(lengthBytes.clear().putInt(0, length));
+            crc.update(payload);
+            if ((int) crc.getValue() != storedCrc) {
+                return invalid(records, position, fileSize, syncedEnd, "checksum mismatch");
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+            long seed = buffer.getLong();
+            long populationSize = buffer.getLong();
+            int winnerCount = buffer.getInt();
+            if (winnerCount != buffer.remaining() / 8) {
+                return invalid(records, position, fileSize, syncedEnd, "winner count mismatch");
+            }
+            long[] winnerIds = new long[winnerCount];
+            buffer.asLongBuffer().get(winnerIds);
+            try {
+                consumer.accept(new DrawRecord(timestamp, seed, populationSize, winnerIds));
+            } catch (IllegalArgumentException e) {
+                return invalid(records, position, fileSize, syncedEnd, e.getMessage());
+            }
+            records++;
+            position += DrawRecord.RECORD_OVERHEAD + length;
+        }
+        return position < syncedEnd
+                ? invalid(records, position, fileSize, syncedEnd, "end of the records before the synced end " + syncedEnd)
+                : new Scan(records, position, fileSize, syncedEnd, null);
+    }
+
+    private static Scan invalid(long records, long position, long fileSize, long syncedEnd, String reason) {
+        return new Scan(records, position, fileSize, syncedEnd, reason + " at position " + position);
+    }
+
+    /**
+     * Outcome of the scan of a journal.
+     *
+     * @param records   the number of valid records
+     * @param validEnd  the position following the last valid record
+     * @param fileSize  the size of the file
+     * @param syncedEnd the position up to which the records were durable, read from the header
+     * @param error     why the scan stopped before the end marker, {@code null} if it did not
+     */
+    public record Scan(long records, long validEnd, long fileSize, long syncedEnd, String error) {
+
+        /**
+         * @return {@code true} if every record is valid
+         */
+        public boolean isClean() {
+            return error == null;
+        }
+
+        /**
+         * @return {@code true} if only records past the synced end are invalid, which is recoverable by truncation
+         */
+        public boolean isTornTail() {
+            return error != null && validEnd >= syncedEnd;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.hibernatedemo.journal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command line tool checking a {@link DrawJournal} file.
+ * <p>
+ * Checks the checksum of every record, that the timestamps never go backwards and that
+ * the winners of a draw are distinct. With {@code --print}, every record is printed.
+ * Run with:
+ * {@code java -cp target/classes com.example.hibernatedemo.journal.DrawJournalVerifier [--print] ./data/draw-journal.dat}
+ * </p>
+ * <p>
+ * The exit code is {@value #VALID} for a valid journal, {@value #TORN_TAIL} when only
+ * records past the synced end are torn (the application truncates them on startup) and
+ * {@value #CORRUPTED} when the journal is corrupted or unreadable.
+ * </p>
+ */
+public final class DrawJournalVerifier {
+
+    static final int VALID = 0;
+    static final int TORN_TAIL = 1;
+    static final int CORRUPTED = 2;
+    private static final int USAGE = 64;
+
+    private DrawJournalVerifier() {
+    }
+
+    public static void main(String[] args) {
+        boolean print = args.length == 2 && args[0].equals("--print");
+        if (args.length != 1 && !print) {
+            System.err.println("Usage: DrawJournalVerifier [--print] <journal file>");
+            System.exit(USAGE);
+        }
+        System.exit(verify(Path.of(args[args.length - 1]), print, System.out));
+    }
+
+    /**
+     * Verifies a journal and reports the result.
+     *
+     * @param file  the journal file
+     * @param print whether every record is printed
+     * @param out   where the report is printed
+     * @return the exit code of the verification
+     */
+    static int verify(Path file, boolean print, PrintStream out) {
+        AtomicLong anomalies = new AtomicLong();
+        AtomicReference<DrawRecord> previous = new AtomicReference<>();
+        DrawJournalReader.Scan scan;
+        try {
+            scan = DrawJournalReader.scan(file, record -> {
+                if (print) {
+                    out.println(record);
+                }
+                DrawRecord last = previous.getAndSet(record);
+                if (last != null && record.timestamp().isBefore(last.timestamp())) {
+                    out.println("Timestamp goes backwards: " + record);
+                    anomalies.incrementAndGet();
+                }
+                if (Arrays.stream(record.winnerIds()).distinct().count() != record.winnerIds().length) {
+                    out.println("Duplicate winners: " + record);
+                    anomalies.incrementAndGet();
+                }
+            });
+        } catch (IOException e) {
+            out.println("Cannot read " + file + ": " + e.getMessage());
+            return CORRUPTED;
+        }
+
+        out.println(file + ": " + scan.records() + " draws, " + scan.validEnd() + " of " + scan.fileSize()
+                + " bytes used (synced up to " + scan.syncedEnd() + "), " + anomalies.get() + " anomalies");
+        if (scan.isTornTail()) {
+            out.println("Torn unsynced records: " + scan.error());
+            return TORN_TAIL;
+        }
+        if (!scan.isClean()) {
+            out.println("Corrupted: " + scan.error());
+            return CORRUPTED;
+        }
+        return anomalies.get() == 0 ? VALID : CORRUPTED;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.hibernatedemo.journal;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Represents a lottery draw recorded in the {@link DrawJournal}.
+ * <p>
+ * The winners are picked, by their position in ID order, with a
+ * {@link java.util.SplittableRandom} created from {@link #seed}. A draw can therefore be
+ * replayed from its seed and population size, given the roster as it was at draw time.
+ * </p>
+ * <p>
+ * On disk, a record is stored as a big-endian {@code int} payload length, the payload
+ * (timestamp in epoch milliseconds, seed, population size, winner count and winner IDs)
+ * and a CRC-32C of the length and payload. The file starts with a header made of
+ * {@link #MAGIC}, {@link #FORMAT_VERSION} and the synced end (the position up to which the
+ * records are durable), and the records end at the first zero length.
+ * </p>
+ *
+ * @param timestamp      the instant of the draw, millisecond precision, never before the previous record
+ * @param seed           the seed of the random generator used for the draw
+ * @param populationSize the number of players the winners were drawn from
+ * @param winnerIds      the IDs of the winners, in draw order
+ */
+public record DrawRecord(Instant timestamp, long seed, long populationSize, long[] winnerIds) {
+
+    /**
+     * "DRJ1" in ASCII.
+     */
+    static final int MAGIC = 0x44524A31;
+    static final int FORMAT_VERSION = 1;
+    static final int SYNCED_END_OFFSET = 8;
+    static final int HEADER_SIZE = SYNCED_END_OFFSET + 8;
+    static final int MAX_WINNERS = 1024;
+    /**
+     * Timestamp, seed, population size and winner count.
+     */
+    static final int FIXED_PAYLOAD_SIZE = 8 + 8 + 8 + 4;
+    static final int MAX_PAYLOAD_SIZE = FIXED_PAYLOAD_SIZE + 8 * MAX_WINNERS;
+    /**
+     * Length prefix and checksum suffix of every record.
+     */
+    static final int RECORD_OVERHEAD = 4 + 4;
+
+    public DrawRecord {
+        if (winnerIds.length == 0 || winnerIds.length > MAX_WINNERS) {
+            throw new IllegalArgumentException("A draw must have between 1 and " + MAX_WINNERS + " winners");
+        }
+        if (populationSize < winnerIds.length) {
+            throw new IllegalArgumentException("Population size " + populationSize + " is lower than the number of winners");
+        }
+    }
+
+    /**
+     * @return the size of the payload of this record on disk
+     */
+    int payloadSize() {
+        return FIXED_PAYLOAD_SIZE + 8 * winnerIds.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DrawRecord record
+                && timestamp.equals(record.timestamp)
+                && seed == record.seed
+                && populationSize == record.populationSize
+                && Arrays.equals(winnerIds, record.winnerIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * timestamp.hashCode() + Long.hashCode(seed)) + Long.hashCode(populationSize))
+                + Arrays.hashCode(winnerIds);
+    }
+
+    @Override
+    public String toString() {
+        return "DrawRecord {timestamp=" + timestamp + ", seed=" + seed + ", populationSize=" + populationSize
+                + ", winnerIds=" + Arrays.toString(winnerIds) + "}";
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.hibernatedemo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Represents a request executed with an {@code Idempotency-Key}.
+ * <p>
+ * This class is mapped to the database table {@code idempotency_record}, shared by all
+ * the nodes when {@code idempotency.store} is {@code database}. A row is inserted when a
+ * request claims its key and holds the response once the request has completed.
+ * </p>
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_record_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    /**
+     * The idempotency key, scoped by operation.
+     */
+    @Id
+    @Column(length = 300)
+    private String idempotencyKey;
+
+    /**
+     * Hash of the request, to detect a key reused for a different request.
+     */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    /**
+     * Token of the claim of the request in progress, so that only this request completes or releases it.
+     */
+    @Column(nullable = false, length = 36)
+    private String owner;
+
+    /**
+     * HTTP status of the response, {@code null} while the request is in progress.
+     */
+    private Integer responseStatus;
+
+    @Lob
+    private byte[] responseBody;
+
+    /**
+     * End of the lease of the request in progress, or of the retention of the response.
+     */
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // Constructors
+    public IdempotencyRecord() {
+    }
+
+    // Getters
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Integer getResponseStatus() {
+        return responseStatus;
+    }
+
+    public byte[] getResponseBody() {
+        return responseBody;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isCompleted() {
+        return responseStatus != null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.hibernatedemo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Represents an entry of the player change feed.
+ * <p>
+ * This class is mapped to the database table {@code player_change}. A row is written
+ * in the same transaction as every create, update or delete of a {@link Player}, so the
+ * table is a sequenced log of the writes of all the nodes sharing the database. Each
+ * node tails it to invalidate its in-memory state.
+ * </p>
+ */
+@Entity
+@Table(name = "player_change", indexes = @Index(name = "idx_player_change_changed_at", columnList = "changed_at"))
+public class PlayerChange {
+
+    /**
+     * Kind of write recorded by a change.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Many players were written at once, {@link #playerId} is {@code null}.
+         */
+        BULK
+    }
+
+    /**
+     * Sequence number of the change, monotonically increasing.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The ID of the written player, {@code null} for {@link Type#BULK} changes.
+     */
+    private Long playerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Type type;
+
+    /**
+     * Identifier of the node which performed the write.
+     */
+    @Column(nullable = false, length = 64)
+    private String originNode;
+
+    @Column(nullable = false)
+    private Instant changedAt;
+
+    // Constructors
+    public PlayerChange() {
+    }
+
+    public PlayerChange(Type type, Long playerId, String originNode, Instant changedAt) {
+        this.type = type;
+        this.playerId = playerId;
+        this.originNode = originNode;
+        this.changedAt = changedAt;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getOriginNode() {
+        return originNode;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerChange {id=" + id + ", type=" + type + ", playerId=" + playerId + ", originNode=" + originNode + "}";
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.hibernatedemo.repository;
+
+import com.example.hibernatedemo.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Modifying
+    @Query(value = """
+            insert into idempotency_record (idempotency_key, fingerprint, owner, expires_at)
+            values (:key, :fingerprint, :owner, :expiresAt)
+            """, nativeQuery = true)
+    int insertInProgress(String key, String fingerprint, String owner, Instant expiresAt);
+
+    @Modifying
+    @Query("""
+            update IdempotencyRecord r
+            set r.responseStatus = :status, r.responseBody = :body, r.expiresAt = :expiresAt
+            where r.idempotencyKey = :key and r.owner = :owner and r.responseStatus is null
+            """)
+    int complete(String key, String owner, int status, byte[] body, Instant expiresAt);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.owner = :owner and r.responseStatus is null")
+    int deleteInProgress(String key, String owner);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.expiresAt < :now")
+    int deleteExpired(String key, Instant now);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteAllExpired(Instant now);
+}
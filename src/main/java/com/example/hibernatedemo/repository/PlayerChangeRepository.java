@@ -0,0 +1,22 @@
+package com.example.hibernatedemo.repository;
+
+import com.example.hibernatedemo.model.PlayerChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PlayerChangeRepository extends JpaRepository<PlayerChange, Long> {
+
+    List<PlayerChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select max(c.id) from PlayerChange c")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from PlayerChange c where c.changedAt < :threshold")
+    int deleteChangedBefore(Instant threshold);
+}
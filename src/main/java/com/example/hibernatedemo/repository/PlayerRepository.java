@@ -2,6 +2,31 @@ package com.example.hibernatedemo.repository;
 
 import com.example.hibernatedemo.model.Player;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
 
 public interface PlayerRepository extends JpaRepository<Player, Long> {
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Player p where p.id in :ids")
+    int bulkDeleteByIds(Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            delete from Player p
+            where (:name is null or p.name = :name)
+              and (:surname is null or p.surname = :surname)
+              and (:emailDomain is null or p.email like concat('%@', :emailDomain) escape '!')
+            """)
+    int bulkDeleteMatching(String name, String surname, String emailDomain);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Player p
+            set p.name = coalesce(:name, p.name), p.surname = coalesce(:surname, p.surname)
+            where p.id in :ids
+            """)
+    int bulkUpdateNames(Collection<Long> ids, String name, String surname);
 }
@@ -0,0 +1,27 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.model.PlayerChange;
+
+/**
+ * Callback for node-local state derived from the {@code player} table.
+ * <p>
+ * Beans implementing this interface are notified by the {@link ChangeFeedService} of
+ * every write, whichever node performed it: right after commit for the writes of the
+ * local node, and at the next poll of the change feed for the writes of other nodes.
+ * </p>
+ */
+public interface ChangeFeedListener {
+
+    /**
+     * Called when a single player has been created, updated or deleted.
+     *
+     * @param change the change, never of type {@link PlayerChange.Type#BULK}
+     */
+    void onChange(PlayerChange change);
+
+    /**
+     * Called when the changes cannot be applied one by one: after a bulk write, or when
+     * this node fell too far behind the change feed. All derived state must be rebuilt.
+     */
+    void onResync();
+}
@@ -0,0 +1,218 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.model.PlayerChange;
+import com.example.hibernatedemo.repository.PlayerChangeRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service responsible for the cross-node change feed of {@link com.example.hibernatedemo.model.Player} writes.
+ * <p>
+ * Every write records a {@link PlayerChange} in the transaction of the write. Each node
+ * then tails the {@code player_change} table and notifies its {@link ChangeFeedListener}s,
+ * so that node-local caches and indexes are invalidated when another node writes.
+ * </p>
+ * <p>
+ * Change ids are allocated at insert time but become visible at commit time, so a
+ * change may appear after a higher one. The tailer stops at such a gap and waits for it
+ * to be filled. A gap still open after {@code changefeed.gap-timeout-ms} is skipped: it is
+ * usually an id burnt by a rolled back transaction, but cannot be told apart from a
+ * transaction committing later than the timeout, so the listeners are also asked to
+ * fully resynchronize. When this node is more than
+ * {@code changefeed.max-lag} changes behind, or has not polled for longer than the
+ * retention of the changes, the listeners are asked to fully resynchronize instead.
+ * </p>
+ */
+@Service
+public class ChangeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+    private final PlayerChangeRepository changeRepository;
+    private final ObjectProvider<ChangeFeedListener> listeners;
+    private final String nodeId;
+    private final int batchSize;
+    private final long maxLag;
+    private final Duration gapTimeout;
+    private final Duration retention;
+
+    private long lastSeenId;
+    private Instant lastPolledAt;
+    private Instant gapSince;
+
+    /**
+     * Constructs a new {@code ChangeFeedService}.
+     *
+     * @param changeRepository the repository of the change feed table
+     * @param listeners        the node-local listeners to notify
+     * @param nodeId           identifier of this node, a random one is generated when blank
+     * @param batchSize        number of changes read per query when tailing
+     * @param maxLag           number of pending changes above which a full resynchronization is done
+     * @param gapTimeoutMs     delay after which a gap in the change ids is skipped with a full resynchronization
+     * @param retentionMinutes delay after which changes are pruned from the table
+     */
+    public ChangeFeedService(PlayerChangeRepository changeRepository,
+                             ObjectProvider<ChangeFeedListener> listeners,
+                             @Value("${changefeed.node-id:}") String nodeId,
+                             @Value("${changefeed.batch-size:500}") int batchSize,
+                             @Value("${changefeed.max-lag:10000}") long maxLag,
+                             @Value("${changefeed.gap-timeout-ms:5000}") long gapTimeoutMs,
+                             @Value("${changefeed.retention-minutes:60}") long retentionMinutes) {
+        this.changeRepository = changeRepository;
+        this.listeners = listeners;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.batchSize = batchSize;
+        this.maxLag = maxLag;
+        this.gapTimeout = Duration.ofMillis(gapTimeoutMs);
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    /**
+     * Starts tailing the change feed from its current end: the node-local state is empty
+     * at startup, so the previous changes are irrelevant.
+     */
+    @PostConstruct
+    synchronized void init() {
+        Long latestId = changeRepository.findMaxId();
+        lastSeenId = latestId != null ? latestId : 0L;
+        lastPolledAt = Instant.now();
+        logger.info("Node {} tails the change feed from id {}", nodeId, lastSeenId);
+    }
+
+    /**
+     * Records a change in the current transaction. The local listeners are notified once
+     * the transaction has committed.
+     *
+     * @param type     the kind of write
+     * @param playerId the ID of the written player, {@code null} for {@link PlayerChange.Type#BULK}
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(PlayerChange.Type type, Long playerId) {
+        PlayerChange change = changeRepository.save(new PlayerChange(type, playerId, nodeId, Instant.now()));
+        logger.debug("Recorded {}", change);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatch(change);
+            }
+        });
+    }
+
+    /**
+     * Applies the changes committed by the other nodes since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${changefeed.poll-interval-ms:1000}",
+            initialDelayString = "${changefeed.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        Instant now = Instant.now();
+        Long latestId = changeRepository.findMaxId();
+        if (latestId == null || latestId <= lastSeenId) {
+            lastPolledAt = now;
+            return;
+        }
+        if (latestId - lastSeenId > maxLag || lastPolledAt.plus(retention).isBefore(now)) {
+            logger.warn("Node {} is too far behind the change feed (last seen id {}, latest id {}), resynchronizing",
+                    nodeId, lastSeenId, latestId);
+            resync(latestId);
+            lastPolledAt = now;
+            return;
+        }
+
+        List<PlayerChange> batch;
+        do {
+            batch = changeRepository.findByIdGreaterThanOrderByIdAsc(lastSeenId, PageRequest.of(0, batchSize));
+            for (PlayerChange change : batch) {
+                if (change.getId() != lastSeenId + 1 && !gapExpired(now)) {
+                    logger.debug("Waiting for change id {} to be committed", lastSeenId + 1);
+                    lastPolledAt = now;
+                    return;
+                }
+                gapSince = null;
+                lastSeenId = change.getId();
+                if (!nodeId.equals(change.getOriginNode())) {
+                    dispatch(change);
+                }
+            }
+        } while (batch.size() == batchSize);
+        lastPolledAt = now;
+    }
+
+    /**
+     * Deletes the changes older than the retention delay.
+     */
+    @Scheduled(fixedDelayString = "${changefeed.prune-interval-ms:60000}",
+            initialDelayString = "${changefeed.prune-interval-ms:60000}")
+    @Transactional
+    public void prune() {
+        int deleted = changeRepository.deleteChangedBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Pruned {} changes from the change feed", deleted);
+        }
+    }
+
+    /**
+     * @return the identifier of this node in the change feed
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean gapExpired(Instant now) {
+        if (gapSince == null) {
+            gapSince = now;
+            return false;
+        }
+        if (gapSince.plus(gapTimeout).isBefore(now)) {
+            // Rolled back or committed too late to be applied, the changes it may hold are lost
+            logger.warn("Node {} skips change id {} still not committed after {} ms, resynchronizing",
+                    nodeId, lastSeenId + 1, gapTimeout.toMillis());
+            notifyResync();
+            return true;
+        }
+        return false;
+    }
+
+    private void resync(long latestId) {
+        lastSeenId = latestId;
+        gapSince = null;
+        notifyResync();
+    }
+
+    private void notifyResync() {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onResync();
+            } catch (RuntimeException e) {
+                logger.error("Change feed listener {} failed to resynchronize: {}", listener, e.getMessage(), e);
+            }
+        });
+    }
+
+    private void dispatch(PlayerChange change) {
+        if (change.getType() == PlayerChange.Type.BULK) {
+            notifyResync();
+            return;
+        }
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onChange(change);
+            } catch (RuntimeException e) {
+                logger.error("Change feed listener {} failed to apply {}: {}", listener, change, e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.model.IdempotencyRecord;
+import com.example.hibernatedemo.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link IdempotencyStore} shared by all the nodes through the {@code idempotency_record}
+ * table, used when {@code idempotency.store} is {@code database}.
+ * <p>
+ * A key is claimed by inserting its row, the primary key making sure that only one node
+ * wins. Each operation runs in its own transaction so that the claim is visible to the
+ * other nodes before the request executes, and is not rolled back with it. Duplicates
+ * wait by polling the row every {@code idempotency.poll-interval-ms}.
+ * </p>
+ * <p>
+ * A key in progress is leased for {@code idempotency.lease-seconds}: a node crashing
+ * while executing a request would otherwise hold its key forever. The row holds the token
+ * of its claim, so that a request outliving its lease cannot complete or release the
+ * claim a duplicate made in the meantime. Completed keys expire
+ * {@code idempotency.ttl-minutes} after their completion and are purged periodically.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "database")
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseIdempotencyStore.class);
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration lease;
+    private final long pollIntervalNanos;
+
+    /**
+     * Constructs a new {@code DatabaseIdempotencyStore}.
+     *
+     * @param recordRepository   the repository of the idempotency table
+     * @param transactionManager the transaction manager of the idempotency table
+     * @param ttlMinutes         how long a completed key is replayed
+     * @param leaseSeconds       how long a key in progress is held before being considered abandoned
+     * @param pollIntervalMs     delay between two reads of a key in progress
+     */
+    public DatabaseIdempotencyStore(IdempotencyRecordRepository recordRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${idempotency.ttl-minutes:60}") long ttlMinutes,
+                                    @Value("${idempotency.lease-seconds:60}") long leaseSeconds,
+                                    @Value("${idempotency.poll-interval-ms:50}") long pollIntervalMs) {
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+    }
+
+    @Override
+    public Claim claim(String key, String fingerprint, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            String token = UUID.randomUUID().toString();
+            IdempotencyRecord existing;
+            try {
+                existing = transactionTemplate.execute(status -> tryInsert(key, fingerprint, token));
+            } catch (DataIntegrityViolationException e) {
+                // Another node inserted the key between the read and the insert
+                logger.debug("Idempotency key {} claimed concurrently", key);
+                continue;
+            }
+            if (existing == null) {
+                return Claim.acquired(token);
+            }
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                return Claim.mismatch();
+            }
+            if (existing.isCompleted()) {
+                return Claim.replay(new IdempotentResponse(existing.getResponseStatus(), existing.getResponseBody()));
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return Claim.inProgress();
+            }
+            LockSupport.parkNanos(Math.min(pollIntervalNanos, deadline - System.nanoTime()));
+            if (Thread.currentThread().isInterrupted()) {
+                return Claim.inProgress();
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String token, IdempotentResponse response) {
+        Integer completed = transactionTemplate.execute(status ->
+                recordRepository.complete(key, token, response.status(), response.body(), Instant.now().plus(ttl)));
+        if (completed == null || completed == 0) {
+            logger.warn("Idempotency key {} was claimed again after its lease expired, its response is not stored", key);
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        transactionTemplate.executeWithoutResult(status -> recordRepository.deleteInProgress(key, token));
+    }
+
+    /**
+     * Removes the expired keys.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status -> recordRepository.deleteAllExpired(Instant.now()));
+        logger.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    /**
+     * Inserts the key unless a live row exists. Reading first keeps the expected
+     * duplicates from ending in a constraint violation.
+     *
+     * @return the live row of the key, {@code null} if the key was inserted
+     */
+    private IdempotencyRecord tryInsert(String key, String fingerprint, String token) {
+        Instant now = Instant.now();
+        recordRepository.deleteExpired(key, now);
+        IdempotencyRecord existing = recordRepository.findById(key).orElse(null);
+        if (existing == null) {
+            recordRepository.insertInProgress(key, fingerprint, token, now.plus(lease));
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.exception.IdempotencyKeyConflictException;
+import com.example.hibernatedemo.exception.InvalidIdempotencyKeyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Service executing requests at most once per {@code Idempotency-Key}.
+ * <p>
+ * Clients retrying a request on a timeout send the same key again: instead of executing
+ * the request a second time, the response of the first execution is returned, marked by
+ * the {@value #REPLAYED_HEADER} header. A duplicate arriving while the first request is
+ * still executing waits up to {@code idempotency.wait-timeout-ms} for its response.
+ * </p>
+ * <p>
+ * Keys are scoped by operation, and bound to a hash of the request: reusing a key for a
+ * different request is rejected. Only successful responses are stored, a failed request
+ * releases its key so that it can be retried.
+ * </p>
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+
+    /**
+     * Constructs a new {@code IdempotencyService}.
+     *
+     * @param store         the store of the keys, node-local or shared
+     * @param objectMapper  the mapper serializing the requests and the responses
+     * @param waitTimeoutMs how long a duplicate waits for the first request to complete
+     */
+    public IdempotencyService(IdempotencyStore store, ObjectMapper objectMapper,
+                              @Value("${idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+    }
+
+    /**
+     * Executes an action once per idempotency key.
+     *
+     * @param key       the value of the {@value #IDEMPOTENCY_KEY_HEADER} header, the action is
+     *                  simply executed when {@code null}
+     * @param operation the name of the operation, scoping the key
+     * @param request   the request of the action, {@code null} if it has none
+     * @param bodyType  the type of the response body
+     * @param action    the action to execute
+     * @return the response of the action, or of its first execution for a replay
+     * @throws InvalidIdempotencyKeyException  if the key is malformed or was used for a different request
+     * @throws IdempotencyKeyConflictException if the first request with the key is still in progress
+     */
+    public <T> ResponseEntity<T> execute(String key, String operation, Object request, Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = operation + ":" + key;
+
+        IdempotencyStore.Claim claim = store.claim(scopedKey, fingerprint(request), waitTimeout);
+        switch (claim.outcome()) {
+            case REPLAY -> {
+                logger.info("Replaying the response of idempotency key {}", scopedKey);
+                return replay(claim.response(), bodyType);
+            }
+            case IN_PROGRESS -> throw new IdempotencyKeyConflictException(key);
+            case MISMATCH -> throw new InvalidIdempotencyKeyException(
+                    "Idempotency key " + key + " was already used for a different request");
+            case ACQUIRED -> {
+                // Executed below
+            }
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            store.release(scopedKey, claim.token());
+            throw e;
+        }
+        try {
+            store.complete(scopedKey, claim.token(), new IdempotentResponse(response.getStatusCode().value(),
+                    objectMapper.writeValueAsBytes(response.getBody())));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // The action was executed: its response is returned even if it cannot be replayed
+            logger.error("Cannot store the response of idempotency key {}: {}", scopedKey, e.getMessage(), e);
+            store.release(scopedKey, claim.token());
+        }
+        return response;
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotentResponse response, Class<T> bodyType) {
+        try {
+            return ResponseEntity.status(response.status())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(objectMapper.readValue(response.body(), bodyType));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the stored response", e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Cannot serialize the request", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
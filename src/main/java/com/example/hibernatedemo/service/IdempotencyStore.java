@@ -0,0 +1,89 @@
+package com.example.hibernatedemo.service;
+
+import java.time.Duration;
+
+/**
+ * Storage of the requests executed with an {@code Idempotency-Key}.
+ * <p>
+ * The first request claiming a key executes, then completes the key with its response
+ * or releases it when it fails. Requests claiming a key already claimed wait for the
+ * first one to complete and get its response. A claim is identified by a token, so that
+ * a request which lost its claim cannot complete or release the claim of another one.
+ * </p>
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims a key for the calling request.
+     *
+     * @param key         the idempotency key, scoped by operation
+     * @param fingerprint a hash of the request, identical for all the replays of a request
+     * @param wait        how long to wait for a request in progress with the same key
+     * @return the outcome of the claim
+     */
+    Claim claim(String key, String fingerprint, Duration wait);
+
+    /**
+     * Stores the response of the request which claimed the key, and hands it to the waiting requests.
+     * Does nothing if the claim was lost in the meantime.
+     *
+     * @param key      the claimed key
+     * @param token    the token of the claim
+     * @param response the response to replay
+     */
+    void complete(String key, String token, IdempotentResponse response);
+
+    /**
+     * Releases a key whose request failed, so that a retry executes again.
+     * Does nothing if the claim was lost in the meantime.
+     *
+     * @param key   the claimed key
+     * @param token the token of the claim
+     */
+    void release(String key, String token);
+
+    /**
+     * Outcome of a {@link #claim}.
+     *
+     * @param outcome  what the caller must do
+     * @param token    the token of the claim, only for {@link Outcome#ACQUIRED}
+     * @param response the response to replay, only for {@link Outcome#REPLAY}
+     */
+    record Claim(Outcome outcome, String token, IdempotentResponse response) {
+
+        public static Claim acquired(String token) {
+            return new Claim(Outcome.ACQUIRED, token, null);
+        }
+
+        public static Claim replay(IdempotentResponse response) {
+            return new Claim(Outcome.REPLAY, null, response);
+        }
+
+        public static Claim inProgress() {
+            return new Claim(Outcome.IN_PROGRESS, null, null);
+        }
+
+        public static Claim mismatch() {
+            return new Claim(Outcome.MISMATCH, null, null);
+        }
+    }
+
+    enum Outcome {
+        /**
+         * The caller owns the key and executes the request.
+         */
+        ACQUIRED,
+        /**
+         * The request was already executed, its response must be returned.
+         */
+        REPLAY,
+        /**
+         * The first request is still in progress after the wait.
+         */
+        IN_PROGRESS,
+        /**
+         * The key was used for a different request.
+         */
+        MISMATCH
+    }
+}
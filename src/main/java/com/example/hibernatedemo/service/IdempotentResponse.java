@@ -0,0 +1,10 @@
+package com.example.hibernatedemo.service;
+
+/**
+ * Response of a request executed with an {@code Idempotency-Key}, returned again for its replays.
+ *
+ * @param status the HTTP status code
+ * @param body   the JSON body
+ */
+public record IdempotentResponse(int status, byte[] body) {
+}
@@ -0,0 +1,155 @@
+package com.example.hibernatedemo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Node-local {@link IdempotencyStore}, used when {@code idempotency.store} is {@code memory}.
+ * <p>
+ * Completed keys expire {@code idempotency.ttl-minutes} after their completion. The store
+ * holds at most {@code idempotency.max-entries} keys: when full, the expired keys are
+ * purged and then the oldest completed ones are evicted. Keys in progress are never
+ * evicted, so that concurrent duplicates keep being held.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryIdempotencyStore.class);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    /**
+     * Constructs a new {@code InMemoryIdempotencyStore}.
+     *
+     * @param maxEntries the maximum number of keys held
+     * @param ttlMinutes how long a completed key is replayed
+     */
+    public InMemoryIdempotencyStore(@Value("${idempotency.max-entries:100000}") int maxEntries,
+                                    @Value("${idempotency.ttl-minutes:60}") long ttlMinutes) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+    }
+
+    @Override
+    public Claim claim(String key, String fingerprint, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            Entry entry = new Entry(fingerprint);
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                if (entries.size() > maxEntries) {
+                    evict();
+                }
+                return Claim.acquired(entry.token);
+            }
+            if (existing.isExpired(System.nanoTime())) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return Claim.mismatch();
+            }
+            try {
+                IdempotentResponse response = existing.outcome.get(
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (response != null) {
+                    return Claim.replay(response);
+                }
+                // Released by a failed request: claim the key again
+            } catch (TimeoutException e) {
+                return Claim.inProgress();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Claim.inProgress();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String token, IdempotentResponse response) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.token.equals(token)) {
+            entry.expiresAt = System.nanoTime() + ttlNanos;
+            entry.outcome.complete(response);
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.token.equals(token) && entries.remove(key, entry)) {
+            entry.outcome.complete(null);
+        }
+    }
+
+    /**
+     * Removes the expired keys.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+    }
+
+    /**
+     * @return the number of keys held
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    // Evicts a tenth of the capacity at once so that the cost of the scan is amortized
+    private synchronized void evict() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        purgeExpired();
+        int excess = entries.size() - maxEntries + maxEntries / 10;
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .filter(entry -> entry.getValue().outcome.isDone())
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        logger.debug("Evicted completed idempotency keys, {} keys held", entries.size());
+    }
+
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final String token = UUID.randomUUID().toString();
+        private final CompletableFuture<IdempotentResponse> outcome = new CompletableFuture<>();
+        // In progress until completed
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isExpired(long now) {
+            return outcome.isDone() && now - expiresAt > 0;
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.example.hibernatedemo.service;
 
+import com.example.hibernatedemo.exception.InvalidBulkRequestException;
 import com.example.hibernatedemo.exception.NoPlayersAvailableException;
 import com.example.hibernatedemo.exception.PlayerNotFoundException;
+import com.example.hibernatedemo.journal.DrawJournal;
 import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.model.PlayerChange;
 import com.example.hibernatedemo.repository.PlayerRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -18,32 +24,40 @@ import java.util.concurrent.ThreadLocalRandom;
  * <p>
  * This class acts as a bridge between the controller layer and the
  * {@link PlayerRepository}, providing high-level business logic for
- * creating, retrieving, updating, and deleting players.
+ * creating, retrieving, updating, and deleting players. The whole roster is served by
+ * the {@link RosterSnapshotService} instead.
+ * </p>
+ * <p>
+ * Every write is recorded in the change feed through the {@link ChangeFeedService},
+ * in the same transaction as the write itself, and every draw is recorded in the
+ * {@link DrawJournal}.
  * </p>
  */
 @Service
 public class PlayerService {
 
     private static final Logger logger = LoggerFactory.getLogger(PlayerService.class);
+    /**
+     * Maximum number of IDs bound to a single bulk statement, to keep the {@code IN} list
+     * within the limits of the database drivers.
+     */
+    static final int BULK_CHUNK_SIZE = 1000;
     private final PlayerRepository playerRepository;
+    private final ChangeFeedService changeFeedService;
+    private final DrawJournal drawJournal;
 
     /**
      * Constructs a new {@code PlayerService} with the specified {@link PlayerRepository}.
      *
-     * @param playerRepository the repository used for performing player persistence operations
+     * @param playerRepository  the repository used for performing player persistence operations
+     * @param changeFeedService the service recording the writes in the change feed
+     * @param drawJournal       the journal recording the draws
      */
-    public PlayerService(PlayerRepository playerRepository) {
+    public PlayerService(PlayerRepository playerRepository, ChangeFeedService changeFeedService,
+                         DrawJournal drawJournal) {
         this.playerRepository = playerRepository;
-    }
-
-    /**
-     * Retrieves a list of all registered players.
-     *
-     * @return a {@link List} containing all {@link Player} objects
-     */
-    public List<Player> getAllPlayers() {
-        logger.info("");
-        return playerRepository.findAll();
+        this.changeFeedService = changeFeedService;
+        this.drawJournal = drawJournal;
     }
 
     /**
@@ -64,9 +78,12 @@ public class PlayerService {
      * @param player the {@link Player} object to create
      * @return the saved {@link Player} instance with a generated ID
      */
+    @Transactional
     public Player createPlayer(Player player) {
         logger.info("player data: {}", player.toString());
-        return playerRepository.save(player);
+        Player createdPlayer = playerRepository.save(player);
+        changeFeedService.record(PlayerChange.Type.CREATED, createdPlayer.getId());
+        return createdPlayer;
     }
 
     /**
@@ -77,13 +94,16 @@ public class PlayerService {
      * @return the updated {@link Player} instance
      * @throws PlayerNotFoundException if {@link Player} is not found
      */
+    @Transactional
     public Player updatePlayer(Long id, Player updatedPlayer) {
         logger.info("id:{} player new data: {}", id, updatedPlayer.toString());
         Player player = playerRepository.findById(id).orElseThrow(() -> new PlayerNotFoundException(id));
         player.setName(updatedPlayer.getName());
         player.setSurname(updatedPlayer.getSurname());
         player.setEmail(updatedPlayer.getEmail());
-        return playerRepository.save(player);
+        Player savedPlayer = playerRepository.save(player);
+        changeFeedService.record(PlayerChange.Type.UPDATED, id);
+        return savedPlayer;
     }
 
     /**
@@ -91,11 +111,93 @@ public class PlayerService {
      *
      * @param id the ID of the player to delete
      */
+    @Transactional
     public void deletePlayer(Long id) {
         logger.info("id: {}", id);
         playerRepository.deleteById(id);
+        changeFeedService.record(PlayerChange.Type.DELETED, id);
+    }
+
+    /**
+     * Deletes the players with the given IDs using set-based statements, {@value #BULK_CHUNK_SIZE}
+     * IDs at a time, in a single transaction.
+     *
+     * @param ids the IDs of the players to delete, unknown IDs are ignored
+     * @return the number of deleted players
+     */
+    @Transactional
+    public int deletePlayers(List<Long> ids) {
+        logger.info("ids count: {}", ids.size());
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+            affected += playerRepository.bulkDeleteByIds(ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size())));
+        }
+        recordBulkChange(affected);
+        return affected;
+    }
+
+    /**
+     * Deletes, in a single statement, the players matching all the given criteria.
+     * A {@code null} criterion matches every player, so clearing the whole roster
+     * requires {@code all} to be set explicitly.
+     *
+     * @param name        exact given name, or {@code null}
+     * @param surname     exact surname, or {@code null}
+     * @param emailDomain exact domain of the email (the part after {@code @}), or {@code null}
+     * @param all         whether all the players may be deleted when no criterion is given
+     * @return the number of deleted players
+     * @throws InvalidBulkRequestException if no criterion is given and {@code all} is not set
+     */
+    @Transactional
+    public int deletePlayersMatching(String name, String surname, String emailDomain, boolean all) {
+        logger.info("name: {} surname: {} emailDomain: {} all: {}", name, surname, emailDomain, all);
+        if (name == null && surname == null && emailDomain == null && !all) {
+            throw new InvalidBulkRequestException("At least one filter, or all=true, is required to delete players");
+        }
+        int affected = playerRepository.bulkDeleteMatching(name, surname, escapeLike(emailDomain));
+        recordBulkChange(affected);
+        return affected;
+    }
+
+    /**
+     * Sets the given name and/or surname on the players with the given IDs using
+     * set-based statements, {@value #BULK_CHUNK_SIZE} IDs at a time, in a single transaction.
+     *
+     * @param ids     the IDs of the players to update, unknown IDs are ignored
+     * @param name    the new given name, or {@code null} to keep the current one
+     * @param surname the new surname, or {@code null} to keep the current one
+     * @return the number of updated players
+     */
+    @Transactional
+    public int updatePlayers(List<Long> ids, String name, String surname) {
+        logger.info("ids count: {} name: {} surname: {}", ids.size(), name, surname);
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+            affected += playerRepository.bulkUpdateNames(
+                    ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size())), name, surname);
+        }
+        recordBulkChange(affected);
+        return affected;
     }
 
+    /**
+     * Draws a random player and records the draw in the {@link DrawJournal}.
+     * <p>
+     * The winner is the player at a position, in ID order, drawn by a
+     * {@link SplittableRandom} created from a random seed. The seed and the population
+     * size are journaled with the winner so that the draw can be audited: replaying it
+     * requires the roster as it was at draw time.
+     * </p>
+     * <p>
+     * The count and the page are read in one repeatable read transaction, from the same
+     * snapshot of the roster, so that a concurrent write cannot make the journaled seed
+     * and population size pick another player than the journaled winner.
+     * </p>
+     *
+     * @return the drawn {@link Player}
+     * @throws NoPlayersAvailableException if there is no player
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public Player getRandomPlayer() {
 
         long count = playerRepository.count();
@@ -104,9 +206,29 @@ public class PlayerService {
 
         }
 
-        int index = ThreadLocalRandom.current().nextInt((int) count);
-        Page<Player> page = playerRepository.findAll(PageRequest.of(index, 1));
-        return page.getContent().get(0);
+        long seed = ThreadLocalRandom.current().nextLong();
+        int index = new SplittableRandom(seed).nextInt((int) count);
+        List<Player> page = playerRepository.findAll(PageRequest.of(index, 1, Sort.by("id"))).getContent();
+        if (page.isEmpty()) {
+            // Only when the database does not read both from the same snapshot
+            throw new NoPlayersAvailableException("No player at position " + index + " of " + count);
+        }
+        Player winner = page.get(0);
+        drawJournal.append(seed, count, winner.getId());
+        return winner;
     }
 
+    // Escapes the LIKE wildcards so that the domain only matches itself
+    private static String escapeLike(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private void recordBulkChange(int affected) {
+        if (affected > 0) {
+            changeFeedService.record(PlayerChange.Type.BULK, null);
+        }
+    }
 }
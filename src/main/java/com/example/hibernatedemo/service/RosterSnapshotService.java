@@ -0,0 +1,559 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.model.PlayerChange;
+import com.example.hibernatedemo.repository.PlayerRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service serving the roster of players from an in-memory snapshot.
+ * <p>
+ * The roster is held in columnar form: sorted IDs, and for the names and surnames
+ * indexes into a pool of deduplicated strings. The JSON (and gzip) bytes of
+ * each page of {@code roster.snapshot.page-size} players, and of the whole roster, are
+ * rendered once and served as is until a write touches them.
+ * </p>
+ * <p>
+ * The snapshot is loaded from the database on first read and kept up to date through
+ * the change feed. The players are stored in chunks of about a page, so a single player
+ * change only copies the chunk holding it and only re-renders the affected pages, while
+ * bulk writes and resynchronizations drop the snapshot so that it is reloaded on next
+ * read. Snapshots are immutable and published atomically, so reads of a current
+ * snapshot never lock.
+ * </p>
+ * <p>
+ * A change only marks its player as dirty: the change of a local write is received in
+ * the request thread of the write, which still holds its database connection, so reading
+ * there could exhaust the connection pool. The dirty players are re-read on the next
+ * read of the roster, in a new transaction, which keeps the snapshot current even when
+ * the changes of concurrent writes arrive out of order. When more than a page of players
+ * is dirty, or when re-reading them fails, the whole roster is reloaded instead.
+ * </p>
+ */
+@Service
+public class RosterSnapshotService implements ChangeFeedListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RosterSnapshotService.class);
+    private static final byte[] EMPTY_JSON = {'[', ']'};
+    private static final int NULL_STRING = -1;
+    private final PlayerRepository playerRepository;
+    private final TransactionTemplate readTransaction;
+    private final JsonFactory jsonFactory;
+    private final int pageSize;
+    private final boolean gzipEnabled;
+    private final Object lock = new Object();
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+    // Set when the roster must be reloaded, initially as it is not loaded yet
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private final byte[] emptyGzip;
+
+    private volatile Roster roster;
+    private StringPool pool;
+    private String epoch;
+    private long version;
+
+    /**
+     * Constructs a new {@code RosterSnapshotService}.
+     *
+     * @param playerRepository   the repository the roster is loaded from
+     * @param transactionManager the transaction manager used to re-read the changed players
+     * @param objectMapper       the application object mapper, providing the JSON generator
+     * @param pageSize           number of players per rendered page
+     * @param gzipEnabled        whether gzip bytes are served to clients accepting them
+     */
+    public RosterSnapshotService(PlayerRepository playerRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 @Value("${roster.snapshot.page-size:500}") int pageSize,
+                                 @Value("${roster.snapshot.gzip:true}") boolean gzipEnabled) {
+        this.playerRepository = playerRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.jsonFactory = objectMapper.getFactory();
+        this.pageSize = pageSize;
+        this.gzipEnabled = gzipEnabled;
+        this.emptyGzip = gzip(EMPTY_JSON);
+    }
+
+    /**
+     * Retrieves the pre-rendered JSON of the roster.
+     *
+     * @param page       the zero-based page to return, or {@code null} for the whole roster;
+     *                   pages outside the roster are empty
+     * @param acceptGzip whether the client accepts a gzip encoded body
+     * @return the bytes to send as is, which must not be modified
+     */
+    public RosterBody getRoster(Integer page, boolean acceptGzip) {
+        Roster current = currentRoster();
+        boolean gzip = acceptGzip && gzipEnabled;
+        byte[] bytes = page == null ? current.full(gzip) : current.page(page, gzip);
+        String etag = "\"" + current.tag + (page == null ? "" : "-p" + page) + (gzip ? "-gz" : "") + "\"";
+        return new RosterBody(bytes, gzip, etag);
+    }
+
+    /**
+     * Marks the changed player as dirty, without any database access nor waiting for a
+     * read of the roster in progress. Nothing is marked while a reload is pending, as
+     * the reload reads the database after this change has committed.
+     */
+    @Override
+    public void onChange(PlayerChange change) {
+        if (stale.get()) {
+            return;
+        }
+        dirtyIds.add(change.getPlayerId());
+        if (dirtyIds.size() > pageSize) {
+            stale.set(true);
+        }
+    }
+
+    @Override
+    public void onResync() {
+        stale.set(true);
+    }
+
+    private Roster currentRoster() {
+        Roster current = roster;
+        if (current != null && !stale.get() && dirtyIds.isEmpty()) {
+            return current;
+        }
+        synchronized (lock) {
+            // Taken before reading the database: a change received meanwhile is kept for the next read
+            boolean reload = stale.getAndSet(false) || roster == null;
+            List<Long> ids = new ArrayList<>();
+            for (Iterator<Long> iterator = dirtyIds.iterator(); iterator.hasNext(); ) {
+                ids.add(iterator.next());
+                iterator.remove();
+            }
+            if (!reload && !ids.isEmpty()) {
+                try {
+                    roster = reread(roster, ids);
+                    reload = pool.size() > 4 * roster.size + 1024;
+                    if (reload) {
+                        logger.debug("Reloading the roster snapshot to compact its string pool");
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to re-read {} changed players, reloading the roster snapshot: {}",
+                            ids.size(), e.getMessage());
+                    reload = true;
+                }
+            }
+            if (reload) {
+                roster = null;
+                try {
+                    roster = load();
+                } catch (RuntimeException e) {
+                    stale.set(true);
+                    throw e;
+                }
+            }
+            return roster;
+        }
+    }
+
+    private Roster reread(Roster current, List<Long> ids) {
+        List<Player> players = readTransaction.execute(status -> playerRepository.findAllById(ids));
+        Map<Long, Player> found = new HashMap<>();
+        for (Player player : players) {
+            found.put(player.getId(), player);
+        }
+        for (Long id : ids) {
+            Player player = found.get(id);
+            current = player != null ? current.with(player) : current.without(id);
+        }
+        return current;
+    }
+
+    private Roster load() {
+        List<Player> players = playerRepository.findAll(Sort.by("id"));
+        pool = new StringPool();
+        epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, Character.MAX_RADIX);
+        int size = players.size();
+        Chunk[] chunks = new Chunk[(size + pageSize - 1) / pageSize];
+        for (int c = 0; c < chunks.length; c++) {
+            int from = c * pageSize;
+            int length = Math.min(size - from, pageSize);
+            long[] ids = new long[length];
+            int[] names = new int[length];
+            int[] surnames = new int[length];
+            String[] emails = new String[length];
+            for (int i = 0; i < length; i++) {
+                Player player = players.get(from + i);
+                ids[i] = player.getId();
+                names[i] = pool.intern(player.getName());
+                surnames[i] = pool.intern(player.getSurname());
+                emails[i] = player.getEmail();
+            }
+            chunks[c] = new Chunk(ids, names, surnames, emails);
+        }
+        logger.info("Loaded roster snapshot of {} players ({} distinct names and surnames)", size, pool.size());
+        return new Roster(chunks, null, 0, 0);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Pre-rendered body of a roster response.
+     *
+     * @param bytes   the JSON bytes, gzip encoded when {@code gzipped} is {@code true}
+     * @param gzipped whether {@code bytes} are gzip encoded
+     * @param etag    the entity tag of the response, quoted
+     */
+    public record RosterBody(byte[] bytes, boolean gzipped, String etag) {
+    }
+
+    /**
+     * Immutable columns of consecutive players of a roster, sorted by ID and never empty.
+     * A write copies only the chunk holding the player.
+     */
+    private record Chunk(long[] ids, int[] names, int[] surnames, String[] emails) {
+
+        private int size() {
+            return ids.length;
+        }
+
+        private Chunk set(int index, int name, int surname, String email) {
+            int[] newNames = names.clone();
+            int[] newSurnames = surnames.clone();
+            String[] newEmails = emails.clone();
+            newNames[index] = name;
+            newSurnames[index] = surname;
+            newEmails[index] = email;
+            return new Chunk(ids, newNames, newSurnames, newEmails);
+        }
+
+        private Chunk insert(int at, long id, int name, int surname, String email) {
+            return new Chunk(inserted(ids, at, id), inserted(names, at, name), inserted(surnames, at, surname),
+                    inserted(emails, at, email));
+        }
+
+        private Chunk remove(int index) {
+            return new Chunk(removed(ids, index), removed(names, index), removed(surnames, index),
+                    removed(emails, index));
+        }
+
+        private Chunk slice(int from, int to) {
+            return new Chunk(Arrays.copyOfRange(ids, from, to), Arrays.copyOfRange(names, from, to),
+                    Arrays.copyOfRange(surnames, from, to), Arrays.copyOfRange(emails, from, to));
+        }
+    }
+
+    /**
+     * Immutable snapshot of the roster, sorted by ID, with lazily rendered pages. Only
+     * created and derived under {@link #lock}.
+     */
+    private final class Roster {
+
+        private final Chunk[] chunks;
+        private final int[] starts;
+        private final int size;
+        private final String[] strings;
+        private final String tag;
+        private final AtomicReferenceArray<byte[]> pages;
+        private final AtomicReferenceArray<byte[]> gzipPages;
+        private volatile byte[] full;
+        private volatile byte[] gzipFull;
+
+        /**
+         * @param previous      the snapshot this one derives from, or {@code null}
+         * @param dirtyFromPage first page of {@code previous} whose bytes cannot be reused
+         * @param dirtyToPage   page following the last one whose bytes cannot be reused
+         */
+        private Roster(Chunk[] chunks, Roster previous, int dirtyFromPage, int dirtyToPage) {
+            this.chunks = chunks;
+            this.starts = new int[chunks.length];
+            int position = 0;
+            for (int c = 0; c < chunks.length; c++) {
+                starts[c] = position;
+                position += chunks[c].size();
+            }
+            this.size = position;
+            this.strings = pool.values();
+            this.tag = epoch + "-" + ++version;
+            int pageCount = (size + pageSize - 1) / pageSize;
+            this.pages = new AtomicReferenceArray<>(pageCount);
+            this.gzipPages = new AtomicReferenceArray<>(pageCount);
+            if (previous != null) {
+                for (int page = 0; page < Math.min(pageCount, previous.pages.length()); page++) {
+                    if (page < dirtyFromPage || page >= dirtyToPage) {
+                        pages.set(page, previous.pages.get(page));
+                        gzipPages.set(page, previous.gzipPages.get(page));
+                    }
+                }
+            }
+        }
+
+        private Roster with(Player player) {
+            long id = player.getId();
+            int name = pool.intern(player.getName());
+            int surname = pool.intern(player.getSurname());
+            if (chunks.length == 0) {
+                Chunk chunk = new Chunk(new long[]{id}, new int[]{name}, new int[]{surname}, new String[]{player.getEmail()});
+                return new Roster(new Chunk[]{chunk}, this, 0, Integer.MAX_VALUE);
+            }
+            int c = chunkOf(id);
+            Chunk chunk = chunks[c];
+            int index = Arrays.binarySearch(chunk.ids(), id);
+            if (index >= 0) {
+                int page = (starts[c] + index) / pageSize;
+                return new Roster(replaced(chunks, c, chunk.set(index, name, surname, player.getEmail())),
+                        this, page, page + 1);
+            }
+            int at = -index - 1;
+            Chunk grown = chunk.insert(at, id, name, surname, player.getEmail());
+            Chunk[] newChunks = grown.size() > 2 * pageSize
+                    ? replaced(chunks, c, grown.slice(0, pageSize), grown.slice(pageSize, grown.size()))
+                    : replaced(chunks, c, grown);
+            return new Roster(newChunks, this, (starts[c] + at) / pageSize, Integer.MAX_VALUE);
+        }
+
+        private Roster without(long id) {
+            if (chunks.length == 0) {
+                return this;
+            }
+            int c = chunkOf(id);
+            Chunk chunk = chunks[c];
+            int index = Arrays.binarySearch(chunk.ids(), id);
+            if (index < 0) {
+                return this;
+            }
+            Chunk[] newChunks = chunk.size() == 1 ? replaced(chunks, c) : replaced(chunks, c, chunk.remove(index));
+            return new Roster(newChunks, this, (starts[c] + index) / pageSize, Integer.MAX_VALUE);
+        }
+
+        // Last chunk starting at or before the given ID, or the first chunk
+        private int chunkOf(long id) {
+            int low = 0;
+            int high = chunks.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (chunks[middle].ids()[0] <= id) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        private byte[] page(int page, boolean gzip) {
+            if (page < 0 || page >= pages.length()) {
+                return gzip ? emptyGzip : EMPTY_JSON;
+            }
+            byte[] json = pages.get(page);
+            if (json == null) {
+                json = render(page * pageSize, Math.min(size, (page + 1) * pageSize));
+                pages.set(page, json);
+            }
+            if (!gzip) {
+                return json;
+            }
+            byte[] compressed = gzipPages.get(page);
+            if (compressed == null) {
+                compressed = RosterSnapshotService.gzip(json);
+                gzipPages.set(page, compressed);
+            }
+            return compressed;
+        }
+
+        private byte[] full(boolean gzip) {
+            byte[] json = full;
+            if (json == null) {
+                json = concatenatePages();
+                full = json;
+            }
+            if (!gzip) {
+                return json;
+            }
+            byte[] compressed = gzipFull;
+            if (compressed == null) {
+                compressed = RosterSnapshotService.gzip(json);
+                gzipFull = compressed;
+            }
+            return compressed;
+        }
+
+        // Joins the rendered pages by copying their content without the enclosing brackets
+        private byte[] concatenatePages() {
+            int pageCount = pages.length();
+            if (pageCount == 0) {
+                return EMPTY_JSON;
+            }
+            byte[][] rendered = new byte[pageCount][];
+            int length = 2 + pageCount - 1;
+            for (int page = 0; page < pageCount; page++) {
+                rendered[page] = page(page, false);
+                length += rendered[page].length - 2;
+            }
+            byte[] json = new byte[length];
+            json[0] = '[';
+            int position = 1;
+            for (int page = 0; page < pageCount; page++) {
+                if (page > 0) {
+                    json[position++] = ',';
+                }
+                System.arraycopy(rendered[page], 1, json, position, rendered[page].length - 2);
+                position += rendered[page].length - 2;
+            }
+            json[position] = ']';
+            return json;
+        }
+
+        private byte[] render(int from, int to) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((to - from) * 96 + 2);
+            int c = Arrays.binarySearch(starts, from);
+            if (c < 0) {
+                c = -c - 2;
+            }
+            int i = from - starts[c];
+            try (JsonGenerator generator = jsonFactory.createGenerator(bytes)) {
+                generator.writeStartArray();
+                for (int position = from; position < to; position++, i++) {
+                    if (i == chunks[c].size()) {
+                        c++;
+                        i = 0;
+                    }
+                    Chunk chunk = chunks[c];
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", chunk.ids()[i]);
+                    generator.writeStringField("name", string(chunk.names()[i]));
+                    generator.writeStringField("surname", string(chunk.surnames()[i]));
+                    generator.writeStringField("email", chunk.emails()[i]);
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private String string(int index) {
+            return index == NULL_STRING ? null : strings[index];
+        }
+    }
+
+    // Copy of the chunks where the one at the given index is replaced by the given ones
+    private static Chunk[] replaced(Chunk[] chunks, int index, Chunk... replacements) {
+        Chunk[] result = new Chunk[chunks.length - 1 + replacements.length];
+        System.arraycopy(chunks, 0, result, 0, index);
+        System.arraycopy(replacements, 0, result, index, replacements.length);
+        System.arraycopy(chunks, index + 1, result, index + replacements.length, chunks.length - index - 1);
+        return result;
+    }
+
+    private static long[] inserted(long[] values, int at, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        result[at] = value;
+        return result;
+    }
+
+    private static long[] removed(long[] values, int index) {
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    private static int[] inserted(int[] values, int at, int value) {
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        result[at] = value;
+        return result;
+    }
+
+    private static String[] inserted(String[] values, int at, String value) {
+        String[] result = new String[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        result[at] = value;
+        return result;
+    }
+
+    private static int[] removed(int[] values, int index) {
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    private static String[] removed(String[] values, int index) {
+        String[] result = new String[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    /**
+     * Append-only pool of deduplicated strings. Slots are never overwritten, so a snapshot
+     * keeps reading the array it was created with while the pool grows.
+     */
+    private static final class StringPool {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private String[] values = new String[256];
+
+        private int intern(String value) {
+            if (value == null) {
+                return NULL_STRING;
+            }
+            Integer index = indexes.get(value);
+            if (index != null) {
+                return index;
+            }
+            int size = indexes.size();
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            indexes.put(value, size);
+            return size;
+        }
+
+        private String[] values() {
+            return values;
+        }
+
+        private int size() {
+            return indexes.size();
+        }
+    }
+}
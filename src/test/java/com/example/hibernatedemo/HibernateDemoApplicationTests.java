@@ -3,7 +3,7 @@ package com.example.hibernatedemo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "draw.journal.path=target/draw-journal-test.dat")
 class HibernateDemoApplicationTests {
 
 	@Test
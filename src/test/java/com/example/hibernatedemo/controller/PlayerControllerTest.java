@@ -1,9 +1,13 @@
 package com.example.hibernatedemo.controller;
 
+import com.example.hibernatedemo.exception.InvalidBulkRequestException;
 import com.example.hibernatedemo.exception.NoPlayersAvailableException;
 import com.example.hibernatedemo.exception.PlayerNotFoundException;
 import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.service.IdempotencyService;
+import com.example.hibernatedemo.service.InMemoryIdempotencyStore;
 import com.example.hibernatedemo.service.PlayerService;
+import com.example.hibernatedemo.service.RosterSnapshotService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,16 +15,21 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,6 +45,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  */
 //@ExtendWith(MockitoExtension.class)
 @WebMvcTest(PlayerController.class)
+@Import({IdempotencyService.class, InMemoryIdempotencyStore.class})
 @AutoConfigureMockMvc
 class PlayerControllerTest {
 
@@ -46,6 +56,8 @@ class PlayerControllerTest {
     private MockMvc mockMvc;
     @MockitoBean
     private PlayerService playerService;
+    @MockitoBean
+    private RosterSnapshotService rosterSnapshotService;
     private PlayerController playerController;
     private Player player1;
     private Player player2;
@@ -59,15 +71,76 @@ class PlayerControllerTest {
     @Test
     void getAllPlayers_ShouldReturnAllPlayers() throws Exception {
         List<Player> players = Arrays.asList(player1, player2);
-        when(playerService.getAllPlayers()).thenReturn(players);
+        when(rosterSnapshotService.getRoster(null, false))
+                .thenReturn(new RosterSnapshotService.RosterBody(objectMapper.writeValueAsBytes(players), false, "\"v1\""));
 
         mockMvc.perform(get(USERS_ENDPOINT))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].name").value("John"))
                 .andExpect(jsonPath("$[1].surname").value("Smith"));
     }
 
+    @Test
+    void getAllPlayers_whenGzipAccepted_thenReturnsGzipEncodedPage() throws Exception {
+        byte[] gzipBytes = {31, -117, 8, 0};
+        when(rosterSnapshotService.getRoster(2, true))
+                .thenReturn(new RosterSnapshotService.RosterBody(gzipBytes, true, "\"v1-p2-gz\""));
+
+        mockMvc.perform(get(USERS_ENDPOINT).param("page", "2").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().bytes(gzipBytes));
+    }
+
+    @Test
+    void getAllPlayers_whenEtagMatches_thenReturns304() throws Exception {
+        when(rosterSnapshotService.getRoster(null, false))
+                .thenReturn(new RosterSnapshotService.RosterBody(new byte[]{'[', ']'}, false, "\"v1\""));
+
+        mockMvc.perform(get(USERS_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getAllPlayers_whenGzipQualityIsZero_thenReturnsIdentityEncoding() throws Exception {
+        when(rosterSnapshotService.getRoster(null, false))
+                .thenReturn(new RosterSnapshotService.RosterBody(new byte[]{'[', ']'}, false, "\"v1\""));
+
+        mockMvc.perform(get(USERS_ENDPOINT).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        mockMvc.perform(get(USERS_ENDPOINT).header(HttpHeaders.ACCEPT_ENCODING, "*, gzip; q=0.0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void getAllPlayers_whenWildcardEncodingAccepted_thenReturnsGzipEncoding() throws Exception {
+        byte[] gzipBytes = {31, -117, 8, 0};
+        when(rosterSnapshotService.getRoster(null, true))
+                .thenReturn(new RosterSnapshotService.RosterBody(gzipBytes, true, "\"v1-gz\""));
+
+        mockMvc.perform(get(USERS_ENDPOINT).header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, *;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    void getAllPlayers_whenWeakOrListedEtagMatches_thenReturns304() throws Exception {
+        when(rosterSnapshotService.getRoster(null, false))
+                .thenReturn(new RosterSnapshotService.RosterBody(new byte[]{'[', ']'}, false, "\"v1\""));
+
+        for (String ifNoneMatch : List.of("W/\"v1\"", "\"v0\", \"v1\"")) {
+            mockMvc.perform(get(USERS_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""));
+        }
+        mockMvc.perform(get(USERS_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, "\"v0\""))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void getPlayerById_ShouldReturnPlayerById() throws Exception {
         when(playerService.getPlayerById(1L)).thenReturn(player1);
@@ -115,7 +188,7 @@ class PlayerControllerTest {
     // ----------- Internal Server Error Test -----------
     @Test
     void getAllPlayers_KO_whenUnhandledException_thenReturns500() throws Exception {
-        when(playerService.getAllPlayers())
+        when(rosterSnapshotService.getRoster(null, false))
                 .thenThrow(new RuntimeException("Internal server error"));
 
         mockMvc.perform(get(USERS_ENDPOINT))
@@ -191,6 +264,79 @@ class PlayerControllerTest {
                 .andExpect(jsonPath("$.timestamp").isNotEmpty());
     }
 
+    @Test
+    void deletePlayers_ShouldReturnTheNumberOfDeletedPlayers() throws Exception {
+        when(playerService.deletePlayers(List.of(1L, 2L, 3L))).thenReturn(2);
+
+        mockMvc.perform(post(USERS_ENDPOINT + "/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1, 2, 3]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+    }
+
+    @Test
+    void deletePlayers_KO_whenNoIds_thenReturns400() throws Exception {
+        mockMvc.perform(post(USERS_ENDPOINT + "/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details.ids").value("Ids cannot be empty"));
+
+        verify(playerService, never()).deletePlayers(any());
+    }
+
+    @Test
+    void deletePlayersMatching_ShouldPassTheFilterToTheService() throws Exception {
+        when(playerService.deletePlayersMatching(null, "Doe", "example.com", false)).thenReturn(5);
+
+        mockMvc.perform(delete(USERS_ENDPOINT)
+                        .param("surname", "Doe")
+                        .param("emailDomain", "example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(5));
+    }
+
+    @Test
+    void deletePlayersMatching_KO_whenNoFilter_thenReturns400() throws Exception {
+        when(playerService.deletePlayersMatching(null, null, null, false))
+                .thenThrow(new InvalidBulkRequestException("At least one filter, or all=true, is required to delete players"));
+
+        mockMvc.perform(delete(USERS_ENDPOINT))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.timestamp").isNotEmpty())
+                .andExpect(jsonPath("$.message").value("At least one filter, or all=true, is required to delete players"));
+    }
+
+    @Test
+    void deletePlayersMatching_whenAll_thenDeletesAllPlayers() throws Exception {
+        when(playerService.deletePlayersMatching(null, null, null, true)).thenReturn(3);
+
+        mockMvc.perform(delete(USERS_ENDPOINT).param("all", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(3));
+    }
+
+    @Test
+    void updatePlayers_ShouldReturnTheNumberOfUpdatedPlayers() throws Exception {
+        when(playerService.updatePlayers(List.of(1L, 2L), "Winner", null)).thenReturn(2);
+
+        mockMvc.perform(patch(USERS_ENDPOINT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1, 2], \"name\": \"Winner\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+    }
+
+    @Test
+    void updatePlayers_KO_whenNoFieldToUpdate_thenReturns400() throws Exception {
+        mockMvc.perform(patch(USERS_ENDPOINT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1, 2]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details.anyFieldSet").value("At least one field to update must be provided"));
+    }
+
     @Test
     void getRandomPlayer_ShouldReturnARandomPlayer() throws Exception {
 
@@ -213,4 +359,97 @@ class PlayerControllerTest {
         });
     }
 
+    // ----------- Idempotency Key Tests -----------
+    @Test
+    void createPlayer_whenRetriedWithSameIdempotencyKey_thenReplaysTheFirstResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        Player created = new Player("John", "Doe", "john.doe@example.com");
+        created.setId(7L);
+        when(playerService.createPlayer(any(Player.class))).thenReturn(created);
+
+        mockMvc.perform(post(USERS_ENDPOINT)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(player1)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andExpect(jsonPath("$.id").value(7));
+        mockMvc.perform(post(USERS_ENDPOINT)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(player1)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.email").value("john.doe@example.com"));
+
+        verify(playerService, times(1)).createPlayer(any(Player.class));
+    }
+
+    @Test
+    void createPlayer_KO_whenIdempotencyKeyReusedForAnotherPlayer_thenReturns422() throws Exception {
+        String key = UUID.randomUUID().toString();
+        when(playerService.createPlayer(any(Player.class))).thenReturn(player1);
+
+        mockMvc.perform(post(USERS_ENDPOINT)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(player1)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post(USERS_ENDPOINT)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(player2)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.timestamp").isNotEmpty());
+
+        verify(playerService, times(1)).createPlayer(any(Player.class));
+    }
+
+    @Test
+    void createPlayer_whenFirstAttemptFailed_thenRetryWithSameIdempotencyKeyExecutesAgain() throws Exception {
+        String key = UUID.randomUUID().toString();
+        when(playerService.createPlayer(any(Player.class)))
+                .thenThrow(new org.springframework.dao.DataIntegrityViolationException("Duplicate email"))
+                .thenReturn(player1);
+
+        mockMvc.perform(post(USERS_ENDPOINT)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(player1)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post(USERS_ENDPOINT)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(player1)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER));
+
+        verify(playerService, times(2)).createPlayer(any(Player.class));
+    }
+
+    @Test
+    void getRandomPlayer_whenRetriedWithSameIdempotencyKey_thenReturnsTheSameWinner() throws Exception {
+        String key = UUID.randomUUID().toString();
+        when(playerService.getRandomPlayer()).thenReturn(player1, player2);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get(USERS_ENDPOINT + "/random")
+                            .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, key))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value("John"));
+        }
+
+        verify(playerService, times(1)).getRandomPlayer();
+    }
+
+    @Test
+    void getRandomPlayer_KO_whenIdempotencyKeyTooLong_thenReturns422() throws Exception {
+        mockMvc.perform(get(USERS_ENDPOINT + "/random")
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, "k".repeat(256)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(playerService, never()).getRandomPlayer();
+    }
+
 }
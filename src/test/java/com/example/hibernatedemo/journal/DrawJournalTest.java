@@ -0,0 +1,171 @@
+package com.example.hibernatedemo.journal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Class tests for {@link DrawJournal}, {@link DrawJournalReader} and {@link DrawJournalVerifier}.
+ * <p>
+ * Verifies that the appended draws can be read back, including across segments and
+ * concurrent appends, and that torn records past the synced end are recovered while a
+ * corruption before it is reported.
+ * </p>
+ */
+class DrawJournalTest {
+
+    private static final int SMALL_SEGMENT = 256;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void append_OK_ShouldBeReadBackAfterReopening() throws Exception {
+        Path file = directory.resolve("journal.dat");
+        List<DrawRecord> appended = new ArrayList<>();
+        DrawJournal journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        for (int i = 0; i < 20; i++) {
+            appended.add(journal.append(i * 31L, 10 + i, i, i + 1L));
+        }
+        journal.close();
+
+        assertEquals(appended, DrawJournalReader.readAll(file));
+
+        journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        DrawRecord next = journal.append(42L, 5L, 3L);
+        journal.close();
+
+        appended.add(next);
+        assertEquals(appended, DrawJournalReader.readAll(file));
+        assertEquals(DrawJournalVerifier.VALID, verify(file));
+    }
+
+    @Test
+    void append_OK_whenConcurrent_thenAllDrawsAreJournaled() throws Exception {
+        Path file = directory.resolve("journal.dat");
+        DrawJournal journal = new DrawJournal(file.toString(), 4096, 1, true);
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<DrawRecord>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                long winner = i;
+                futures.add(executor.submit(() -> journal.append(winner, 1000L, winner)));
+            }
+            for (Future<DrawRecord> future : futures) {
+                future.get();
+            }
+        }
+        journal.close();
+
+        assertThat(DrawJournalReader.readAll(file))
+                .hasSize(400)
+                .extracting(record -> record.winnerIds()[0])
+                .containsExactlyInAnyOrderElementsOf(LongStream.range(0, 400).boxed().toList());
+        // The timestamps must follow the append order for the audit to pass
+        assertEquals(DrawJournalVerifier.VALID, verify(file));
+    }
+
+    @Test
+    void open_whenLastRecordTorn_thenTruncatesItAndKeepsAppending() throws Exception {
+        Path file = directory.resolve("journal.dat");
+        DrawJournal journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        DrawRecord first = journal.append(1L, 2L, 1L);
+        DrawRecord second = journal.append(2L, 2L, 2L);
+        journal.close();
+        long end = DrawJournalReader.scan(file, record -> {
+        }).validEnd();
+        // A record whose length made it to disk but whose payload and checksum did not
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).putInt(DrawRecord.FIXED_PAYLOAD_SIZE + 8).putLong(123L).flip(), end);
+        }
+        assertEquals(DrawJournalVerifier.TORN_TAIL, verify(file));
+
+        journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        DrawRecord third = journal.append(3L, 2L, 1L);
+        journal.close();
+
+        assertEquals(List.of(first, second, third), DrawJournalReader.readAll(file));
+        assertEquals(DrawJournalVerifier.VALID, verify(file));
+    }
+
+    @Test
+    void open_whenRecordZeroedInUnsyncedTail_thenTruncatesFromIt() throws Exception {
+        Path file = directory.resolve("journal.dat");
+        DrawJournal journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        List<DrawRecord> appended = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            appended.add(journal.append(i, 1000L, i));
+        }
+        journal.close();
+        int recordSize = DrawRecord.RECORD_OVERHEAD + DrawRecord.FIXED_PAYLOAD_SIZE + 8;
+        // A crash after the first 3 records were synced, with the pages of the tail
+        // written out of order: the 5th record is zeroed past its length while the next ones made it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, DrawRecord.HEADER_SIZE + 3L * recordSize),
+                    DrawRecord.SYNCED_END_OFFSET);
+            channel.write(ByteBuffer.allocate(recordSize - 4), DrawRecord.HEADER_SIZE + 4L * recordSize + 4);
+        }
+        assertEquals(DrawJournalVerifier.TORN_TAIL, verify(file));
+
+        journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        DrawRecord next = journal.append(42L, 1000L, 42L);
+        journal.close();
+
+        List<DrawRecord> expected = new ArrayList<>(appended.subList(0, 4));
+        expected.add(next);
+        assertEquals(expected, DrawJournalReader.readAll(file));
+        assertEquals(DrawJournalVerifier.VALID, verify(file));
+    }
+
+    @Test
+    void open_KO_whenCorruptedInTheMiddle_thenRefusesToStart() throws Exception {
+        Path file = directory.resolve("journal.dat");
+        DrawJournal journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        for (int i = 0; i < 300; i++) {
+            journal.append(i, 1000L, i);
+        }
+        journal.close();
+        // Flip a byte of the seed of the first record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer seedByte = ByteBuffer.allocate(1);
+            long position = DrawRecord.HEADER_SIZE + 4 + 8;
+            channel.read(seedByte, position);
+            channel.write(seedByte.put(0, (byte) (seedByte.get(0) ^ 0xFF)).flip(), position);
+        }
+
+        assertEquals(DrawJournalVerifier.CORRUPTED, verify(file));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true));
+    }
+
+    @Test
+    void open_KO_whenAlreadyOpened_thenThrows() throws Exception {
+        Path file = directory.resolve("journal.dat");
+        DrawJournal journal = new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true);
+        try {
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> new DrawJournal(file.toString(), SMALL_SEGMENT, 0, true));
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static int verify(Path file) {
+        return DrawJournalVerifier.verify(file, false, new PrintStream(new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.HibernateDemoApplication;
+import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.model.PlayerChange;
+import com.example.hibernatedemo.repository.PlayerChangeRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Class tests for {@link ChangeFeedService}.
+ * <p>
+ * Starts two application contexts, two nodes, sharing the same in-memory H2 database
+ * and verifies that the writes of one node reach the listeners of the other one, that
+ * a gap left by a rolled back change is waited for then skipped with a resync, and that
+ * a lagging node resynchronizes. The scheduled polling is disabled so that the tests
+ * trigger it explicitly.
+ * </p>
+ */
+class ChangeFeedServiceTest {
+
+    private static final int NODE_B_MAX_LAG = 5;
+    private static final long GAP_TIMEOUT_MS = 200;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a", 10_000);
+        nodeB = startNode("node-b", NODE_B_MAX_LAG);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @BeforeEach
+    void drainChangeFeed() {
+        nodeA.getBean(ChangeFeedService.class).poll();
+        nodeB.getBean(ChangeFeedService.class).poll();
+        nodeA.getBean(RecordingListener.class).clear();
+        nodeB.getBean(RecordingListener.class).clear();
+    }
+
+    @Test
+    void createPlayer_OK_ShouldNotifyLocalListenerAfterCommitAndRemoteListenerOnPoll() {
+        Player player = nodeA.getBean(PlayerService.class)
+                .createPlayer(new Player("John", "Doe", "john.changefeed@example.com"));
+
+        assertThat(nodeA.getBean(RecordingListener.class).changes)
+                .extracting(PlayerChange::getType, PlayerChange::getPlayerId)
+                .containsExactly(tuple(PlayerChange.Type.CREATED, player.getId()));
+        assertThat(nodeB.getBean(RecordingListener.class).changes).isEmpty();
+
+        nodeB.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeB.getBean(RecordingListener.class).changes)
+                .extracting(PlayerChange::getType, PlayerChange::getPlayerId)
+                .containsExactly(tuple(PlayerChange.Type.CREATED, player.getId()));
+    }
+
+    @Test
+    void updateAndDeletePlayer_OK_ShouldBeAppliedInOrderOnRemoteNode() {
+        PlayerService playerService = nodeA.getBean(PlayerService.class);
+        Player player = playerService.createPlayer(new Player("Jane", "Smith", "jane.changefeed@example.com"));
+        playerService.updatePlayer(player.getId(), new Player("Janet", "Smith", "jane.changefeed@example.com"));
+        playerService.deletePlayer(player.getId());
+
+        nodeB.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeB.getBean(RecordingListener.class).changes)
+                .extracting(PlayerChange::getType)
+                .containsExactly(PlayerChange.Type.CREATED, PlayerChange.Type.UPDATED, PlayerChange.Type.DELETED);
+        assertThat(nodeB.getBean(RecordingListener.class).resyncs).hasValue(0);
+    }
+
+    @Test
+    void poll_ShouldIgnoreChangesOfTheLocalNode() {
+        nodeA.getBean(PlayerService.class).createPlayer(new Player("Local", "Only", "local.changefeed@example.com"));
+        nodeA.getBean(RecordingListener.class).clear();
+
+        nodeA.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeA.getBean(RecordingListener.class).changes).isEmpty();
+    }
+
+    @Test
+    void poll_KO_whenNodeTooFarBehind_thenResynchronizes() {
+        PlayerService playerService = nodeA.getBean(PlayerService.class);
+        for (int i = 0; i <= NODE_B_MAX_LAG; i++) {
+            playerService.createPlayer(new Player("Lag" + i, "Player", "lag" + i + ".changefeed@example.com"));
+        }
+
+        nodeB.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeB.getBean(RecordingListener.class).changes).isEmpty();
+        assertThat(nodeB.getBean(RecordingListener.class).resyncs).hasValue(1);
+
+        nodeB.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeB.getBean(RecordingListener.class).resyncs).hasValue(1);
+    }
+
+    @Test
+    void poll_whenIdGapOpen_thenWaitsForItAndSkipsItWithAResyncAfterTheGapTimeout() throws Exception {
+        // A transaction of node A rolls back after its change was given an id
+        new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            nodeA.getBean(PlayerChangeRepository.class)
+                    .saveAndFlush(new PlayerChange(PlayerChange.Type.CREATED, -1L, "node-a", Instant.now()));
+            status.setRollbackOnly();
+        });
+        Player player = nodeA.getBean(PlayerService.class)
+                .createPlayer(new Player("Gap", "Player", "gap.changefeed@example.com"));
+
+        nodeB.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeB.getBean(RecordingListener.class).changes).isEmpty();
+        assertThat(nodeB.getBean(RecordingListener.class).resyncs).hasValue(0);
+
+        // The skipped id may be a late commit, so its change cannot be assumed absent
+        Thread.sleep(GAP_TIMEOUT_MS + 100);
+        nodeB.getBean(ChangeFeedService.class).poll();
+
+        assertThat(nodeB.getBean(RecordingListener.class).resyncs).hasValue(1);
+        assertThat(nodeB.getBean(RecordingListener.class).changes)
+                .extracting(PlayerChange::getType, PlayerChange::getPlayerId)
+                .containsExactly(tuple(PlayerChange.Type.CREATED, player.getId()));
+    }
+
+    @Test
+    void poll_KO_whenLastPollOlderThanTheRetention_thenResynchronizes() throws Exception {
+        // Node C keeps no retention, so any change found after a delay may have been pruned
+        try (ConfigurableApplicationContext nodeC = startNode("node-c", 10_000, "changefeed.retention-minutes=0")) {
+            nodeA.getBean(PlayerService.class)
+                    .createPlayer(new Player("Stale", "Player", "stale.changefeed@example.com"));
+            Thread.sleep(10);
+
+            nodeC.getBean(ChangeFeedService.class).poll();
+
+            assertThat(nodeC.getBean(RecordingListener.class).changes).isEmpty();
+            assertThat(nodeC.getBean(RecordingListener.class).resyncs).hasValue(1);
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, int maxLag, String... properties) {
+        return new SpringApplicationBuilder(HibernateDemoApplication.class, RecordingListener.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:changefeed;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "changefeed.node-id=" + nodeId,
+                        "draw.journal.path=target/draw-journal-" + nodeId + ".dat",
+                        "changefeed.max-lag=" + maxLag,
+                        "changefeed.gap-timeout-ms=" + GAP_TIMEOUT_MS,
+                        "changefeed.poll-interval-ms=3600000",
+                        "changefeed.prune-interval-ms=3600000")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Listener recording the notifications received by a node.
+     */
+    static class RecordingListener implements ChangeFeedListener {
+
+        private final List<PlayerChange> changes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger resyncs = new AtomicInteger();
+
+        @Override
+        public void onChange(PlayerChange change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void onResync() {
+            resyncs.incrementAndGet();
+        }
+
+        void clear() {
+            changes.clear();
+            resyncs.set(0);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.model.IdempotencyRecord;
+import com.example.hibernatedemo.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Class tests for {@link DatabaseIdempotencyStore}.
+ * <p>
+ * Two stores, two nodes, share the {@code idempotency_record} table of the same H2
+ * database. Verifies that a key is claimed by a single node, that the other node waits
+ * for its response and replays it, and that a claim lost with its lease can no longer
+ * be completed or released. The test methods are not transactional, as the store
+ * commits each of its operations.
+ * </p>
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DatabaseIdempotencyStoreTest {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+    private static final long LEASE_SECONDS = 1;
+    private static final IdempotentResponse CREATED =
+            new IdempotentResponse(201, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DatabaseIdempotencyStore nodeA;
+    private DatabaseIdempotencyStore nodeB;
+
+    @BeforeEach
+    void setUp() {
+        recordRepository.deleteAll();
+        nodeA = new DatabaseIdempotencyStore(recordRepository, transactionManager, 60, LEASE_SECONDS, 10);
+        nodeB = new DatabaseIdempotencyStore(recordRepository, transactionManager, 60, LEASE_SECONDS, 10);
+    }
+
+    @Test
+    void claim_OK_whenCompletedOnAnotherNode_thenReplaysTheResponse() {
+        IdempotencyStore.Claim claim = nodeA.claim("key", "hash", NO_WAIT);
+        assertThat(claim.outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+        assertThat(nodeB.claim("key", "hash", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+
+        nodeA.complete("key", claim.token(), CREATED);
+
+        IdempotencyStore.Claim replay = nodeB.claim("key", "hash", NO_WAIT);
+        assertThat(replay.outcome()).isEqualTo(IdempotencyStore.Outcome.REPLAY);
+        assertThat(replay.response().status()).isEqualTo(201);
+        assertThat(replay.response().body()).isEqualTo(CREATED.body());
+        assertThat(nodeB.claim("key", "other", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.MISMATCH);
+    }
+
+    @Test
+    void claim_whenInProgressOnAnotherNode_thenWaitsForItsResponse() throws Exception {
+        IdempotencyStore.Claim claim = nodeA.claim("key", "hash", NO_WAIT);
+        CompletableFuture<IdempotencyStore.Claim> duplicate =
+                CompletableFuture.supplyAsync(() -> nodeB.claim("key", "hash", Duration.ofSeconds(10)));
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+
+        nodeA.complete("key", claim.token(), CREATED);
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).outcome()).isEqualTo(IdempotencyStore.Outcome.REPLAY);
+    }
+
+    @Test
+    void claim_whenReleased_thenAnotherNodeAcquiresTheKey() {
+        IdempotencyStore.Claim claim = nodeA.claim("key", "hash", NO_WAIT);
+
+        nodeA.release("key", claim.token());
+
+        assertThat(nodeB.claim("key", "hash", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+    }
+
+    @Test
+    void claim_whenConcurrentOnBothNodes_thenOnlyOneAcquires() throws Exception {
+        int claimants = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IdempotencyStore.Claim>> claims = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(claimants)) {
+            for (int i = 0; i < claimants; i++) {
+                DatabaseIdempotencyStore node = i % 2 == 0 ? nodeA : nodeB;
+                claims.add(executor.submit(() -> {
+                    start.await();
+                    return node.claim("key", "hash", NO_WAIT);
+                }));
+            }
+            start.countDown();
+            List<IdempotencyStore.Outcome> outcomes = new ArrayList<>();
+            for (Future<IdempotencyStore.Claim> claim : claims) {
+                outcomes.add(claim.get(10, TimeUnit.SECONDS).outcome());
+            }
+
+            assertThat(outcomes).containsOnlyOnce(IdempotencyStore.Outcome.ACQUIRED);
+            assertThat(outcomes).filteredOn(outcome -> outcome != IdempotencyStore.Outcome.ACQUIRED)
+                    .containsOnly(IdempotencyStore.Outcome.IN_PROGRESS);
+        }
+    }
+
+    @Test
+    void claim_whenLeaseExpired_thenLateRequestCannotReleaseOrCompleteTheNewClaim() throws Exception {
+        IdempotencyStore.Claim slow = nodeA.claim("key", "hash", NO_WAIT);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(LEASE_SECONDS) + 200);
+
+        IdempotencyStore.Claim retry = nodeB.claim("key", "hash", NO_WAIT);
+        assertThat(retry.outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+
+        // The slow first request ends after losing its lease
+        nodeA.release("key", slow.token());
+        nodeA.complete("key", slow.token(), new IdempotentResponse(500, new byte[0]));
+        assertThat(nodeA.claim("key", "hash", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+
+        nodeB.complete("key", retry.token(), CREATED);
+
+        IdempotencyStore.Claim replay = nodeA.claim("key", "hash", NO_WAIT);
+        assertThat(replay.outcome()).isEqualTo(IdempotencyStore.Outcome.REPLAY);
+        assertThat(replay.response().status()).isEqualTo(201);
+    }
+
+    @Test
+    void purgeExpired_ShouldOnlyRemoveExpiredKeys() throws Exception {
+        nodeA.claim("expired", "hash", NO_WAIT);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(LEASE_SECONDS) + 200);
+        IdempotencyStore.Claim claim = nodeA.claim("completed", "hash", NO_WAIT);
+        nodeA.complete("completed", claim.token(), CREATED);
+
+        nodeA.purgeExpired();
+
+        assertThat(recordRepository.findAll())
+                .extracting(IdempotencyRecord::getIdempotencyKey)
+                .containsExactly("completed");
+    }
+}
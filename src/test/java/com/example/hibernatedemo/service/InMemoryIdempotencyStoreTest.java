@@ -0,0 +1,99 @@
+package com.example.hibernatedemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Class tests for {@link InMemoryIdempotencyStore}.
+ * <p>
+ * Verifies that a key is executed once, that concurrent duplicates are held until the
+ * first request completes or fails, and that the store stays bounded.
+ * </p>
+ */
+class InMemoryIdempotencyStoreTest {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+    private static final IdempotentResponse CREATED =
+            new IdempotentResponse(201, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(100, 60);
+
+    @Test
+    void claim_OK_whenCompleted_thenReplaysTheResponse() {
+        IdempotencyStore.Claim claim = store.claim("key", "hash", NO_WAIT);
+        assertThat(claim.outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+        store.complete("key", claim.token(), CREATED);
+
+        IdempotencyStore.Claim replay = store.claim("key", "hash", NO_WAIT);
+
+        assertThat(replay.outcome()).isEqualTo(IdempotencyStore.Outcome.REPLAY);
+        assertThat(replay.response()).isSameAs(CREATED);
+    }
+
+    @Test
+    void claim_KO_whenDifferentFingerprint_thenMismatch() {
+        String token = store.claim("key", "hash", NO_WAIT).token();
+        store.complete("key", token, CREATED);
+
+        assertThat(store.claim("key", "other", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.MISMATCH);
+    }
+
+    @Test
+    void claim_whenInProgress_thenWaitsForTheFirstRequest() throws Exception {
+        String token = store.claim("key", "hash", NO_WAIT).token();
+
+        assertThat(store.claim("key", "hash", Duration.ofMillis(10)).outcome())
+                .isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+
+        CompletableFuture<IdempotencyStore.Claim> duplicate =
+                CompletableFuture.supplyAsync(() -> store.claim("key", "hash", Duration.ofSeconds(10)));
+        Thread.sleep(50);
+        assertThat(duplicate).isNotDone();
+        store.complete("key", token, CREATED);
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).outcome()).isEqualTo(IdempotencyStore.Outcome.REPLAY);
+    }
+
+    @Test
+    void claim_whenFirstRequestReleased_thenDuplicateAcquiresTheKey() throws Exception {
+        String token = store.claim("key", "hash", NO_WAIT).token();
+        CompletableFuture<IdempotencyStore.Claim> duplicate =
+                CompletableFuture.supplyAsync(() -> store.claim("key", "hash", Duration.ofSeconds(10)));
+        Thread.sleep(50);
+
+        store.release("key", token);
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+    }
+
+    @Test
+    void release_whenTokenOfAnotherClaim_thenKeepsTheKey() {
+        store.claim("key", "hash", NO_WAIT);
+
+        store.release("key", "another-token");
+        store.complete("key", "another-token", CREATED);
+
+        assertThat(store.claim("key", "hash", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+    }
+
+    @Test
+    void claim_whenFull_thenEvictsTheOldestCompletedKeys() {
+        store.claim("in-progress", "hash", NO_WAIT);
+        for (int i = 0; i < 150; i++) {
+            String token = store.claim("key-" + i, "hash", NO_WAIT).token();
+            store.complete("key-" + i, token, CREATED);
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(100);
+        assertThat(store.claim("in-progress", "hash", NO_WAIT).outcome())
+                .isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+        assertThat(store.claim("key-149", "hash", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.REPLAY);
+        assertThat(store.claim("key-0", "hash", NO_WAIT).outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+    }
+}
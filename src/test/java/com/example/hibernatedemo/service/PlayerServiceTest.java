@@ -1,19 +1,29 @@
 package com.example.hibernatedemo.service;
 
+import com.example.hibernatedemo.exception.InvalidBulkRequestException;
+import com.example.hibernatedemo.exception.NoPlayersAvailableException;
+import com.example.hibernatedemo.journal.DrawJournal;
 import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.model.PlayerChange;
 import com.example.hibernatedemo.repository.PlayerRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 /**
@@ -29,21 +39,14 @@ class PlayerServiceTest {
     @Mock
     private PlayerRepository playerRepository;
 
-    @InjectMocks
-    private PlayerService playerService;
-
-    @Test
-    void getAllPlayers_ShouldReturnPlayerList() {
-        List<Player> mockPlayers = Arrays.asList(
-                new Player("John", "Doe", "john@example.com"),
-                new Player("Jane", "Smith", "jane@example.com"));
-        when(playerRepository.findAll()).thenReturn(mockPlayers);
+    @Mock
+    private ChangeFeedService changeFeedService;
 
-        List<Player> result = playerService.getAllPlayers();
+    @Mock
+    private DrawJournal drawJournal;
 
-        assertThat(result).hasSize(2);
-        verify(playerRepository, times(1)).findAll();
-    }
+    @InjectMocks
+    private PlayerService playerService;
 
     @Test
     void getPlayerById_OK_ShouldReturnExistingPlayer() {
@@ -67,6 +70,7 @@ class PlayerServiceTest {
         assertEquals(result, player);
 
         verify(playerRepository, times(1)).save(player);
+        verify(changeFeedService, times(1)).record(PlayerChange.Type.CREATED, player.getId());
     }
 
     @Test
@@ -84,6 +88,7 @@ class PlayerServiceTest {
 
         verify(playerRepository, times(1)).findById(1L);
         verify(playerRepository, times(1)).save(player1);
+        verify(changeFeedService, times(1)).record(PlayerChange.Type.UPDATED, 1L);
     }
 
     @Test
@@ -92,5 +97,95 @@ class PlayerServiceTest {
         playerService.deletePlayer(1L);
 
         verify(playerRepository, times(1)).deleteById(1L);
+        verify(changeFeedService, times(1)).record(PlayerChange.Type.DELETED, 1L);
+    }
+
+    @Test
+    void deletePlayers_OK_ShouldDeleteByChunksAndRecordABulkChange() {
+        List<Long> ids = LongStream.rangeClosed(1, 2500).boxed().toList();
+        when(playerRepository.bulkDeleteByIds(anyCollection())).thenReturn(1000, 1000, 500);
+
+        int affected = playerService.deletePlayers(ids);
+
+        assertEquals(2500, affected);
+        verify(playerRepository, times(1)).bulkDeleteByIds(ids.subList(0, 1000));
+        verify(playerRepository, times(1)).bulkDeleteByIds(ids.subList(1000, 2000));
+        verify(playerRepository, times(1)).bulkDeleteByIds(ids.subList(2000, 2500));
+        verify(changeFeedService, times(1)).record(PlayerChange.Type.BULK, null);
+    }
+
+    @Test
+    void deletePlayersMatching_OK_whenNothingMatches_thenNoChangeRecorded() {
+        when(playerRepository.bulkDeleteMatching(null, null, "example.com")).thenReturn(0);
+
+        int affected = playerService.deletePlayersMatching(null, null, "example.com", false);
+
+        assertEquals(0, affected);
+        verify(changeFeedService, never()).record(any(), any());
+    }
+
+    @Test
+    void deletePlayersMatching_ShouldEscapeTheWildcardsOfTheEmailDomain() {
+        when(playerRepository.bulkDeleteMatching(null, null, "!%!_ex!!ample.com")).thenReturn(0);
+
+        playerService.deletePlayersMatching(null, null, "%_ex!ample.com", false);
+
+        verify(playerRepository, times(1)).bulkDeleteMatching(null, null, "!%!_ex!!ample.com");
+    }
+
+    @Test
+    void deletePlayersMatching_KO_whenNoFilterAndNotAll_thenThrows() {
+        assertThrows(InvalidBulkRequestException.class,
+                () -> playerService.deletePlayersMatching(null, null, null, false));
+
+        verify(playerRepository, never()).bulkDeleteMatching(any(), any(), any());
+    }
+
+    @Test
+    void deletePlayersMatching_OK_whenNoFilterAndAll_thenDeletesAllPlayers() {
+        when(playerRepository.bulkDeleteMatching(null, null, null)).thenReturn(3);
+
+        assertEquals(3, playerService.deletePlayersMatching(null, null, null, true));
+        verify(changeFeedService, times(1)).record(PlayerChange.Type.BULK, null);
+    }
+
+    @Test
+    void updatePlayers_OK_ShouldReturnTheNumberOfUpdatedPlayers() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(playerRepository.bulkUpdateNames(ids, "Winner", null)).thenReturn(3);
+
+        int affected = playerService.updatePlayers(ids, "Winner", null);
+
+        assertEquals(3, affected);
+        verify(changeFeedService, times(1)).record(PlayerChange.Type.BULK, null);
+    }
+
+    @Test
+    void getRandomPlayer_OK_ShouldJournalTheDraw() {
+        Player player = new Player("John", "Doe", "john@example.com");
+        player.setId(7L);
+        when(playerRepository.count()).thenReturn(3L);
+        when(playerRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(player)));
+
+        Player result = playerService.getRandomPlayer();
+
+        assertEquals(player, result);
+        ArgumentCaptor<Long> seed = ArgumentCaptor.forClass(Long.class);
+        verify(drawJournal, times(1)).append(seed.capture(), eq(3L), eq(7L));
+        // The draw is replayable: the journaled seed gives the position in ID order
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(playerRepository).findAll(pageable.capture());
+        assertEquals(Sort.by("id"), pageable.getValue().getSort());
+        assertEquals(new SplittableRandom(seed.getValue()).nextInt(3), pageable.getValue().getPageNumber());
+    }
+
+    @Test
+    void getRandomPlayer_KO_whenPageEmpty_thenDoesNotJournalTheDraw() {
+        when(playerRepository.count()).thenReturn(3L);
+        when(playerRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of()));
+
+        assertThrows(NoPlayersAvailableException.class, () -> playerService.getRandomPlayer());
+
+        verifyNoInteractions(drawJournal);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,272 @@
+package com.example.hibernatedemo.service;
+
+import com.example.hibernatedemo.model.Player;
+import com.example.hibernatedemo.model.PlayerChange;
+import com.example.hibernatedemo.repository.PlayerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class tests for {@link RosterSnapshotService}.
+ * <p>
+ * Verifies that the pre-rendered roster matches the JSON of the players, that it follows
+ * the changes without reloading the whole roster from the {@link PlayerRepository}, and
+ * that it is reloaded when applying the changes fails.
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+class RosterSnapshotServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private PlayerRepository playerRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RosterSnapshotService rosterSnapshotService;
+    private List<Player> players;
+
+    @BeforeEach
+    void setUp() {
+        rosterSnapshotService = new RosterSnapshotService(playerRepository, transactionManager, objectMapper, 2, true);
+        players = new ArrayList<>(List.of(
+                player(1L, "John", "Doe", "john@example.com"),
+                player(2L, "Jane", "Doe", "jane@example.com"),
+                player(3L, "John", "Smith", "john.smith@example.com")));
+    }
+
+    @Test
+    void getRoster_ShouldRenderAllPlayersLikeJackson() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players);
+
+        RosterSnapshotService.RosterBody roster = rosterSnapshotService.getRoster(null, false);
+
+        assertThat(roster.gzipped()).isFalse();
+        assertThat(new String(roster.bytes(), StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(players));
+    }
+
+    @Test
+    void getRoster_ShouldRenderPagesAndEmptyPagesOutsideTheRoster() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players);
+
+        assertThat(json(rosterSnapshotService.getRoster(0, false))).isEqualTo(objectMapper.writeValueAsString(players.subList(0, 2)));
+        assertThat(json(rosterSnapshotService.getRoster(1, false))).isEqualTo(objectMapper.writeValueAsString(players.subList(2, 3)));
+        assertThat(json(rosterSnapshotService.getRoster(2, false))).isEqualTo("[]");
+    }
+
+    @Test
+    void getRoster_whenGzipAccepted_thenReturnsGzipOfTheSameJson() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players);
+
+        RosterSnapshotService.RosterBody roster = rosterSnapshotService.getRoster(null, true);
+
+        assertThat(roster.gzipped()).isTrue();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(roster.bytes()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(players));
+        }
+    }
+
+    @Test
+    void getRoster_ShouldLoadOnceAndReturnTheSameBytes() {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players);
+
+        RosterSnapshotService.RosterBody first = rosterSnapshotService.getRoster(null, false);
+        RosterSnapshotService.RosterBody second = rosterSnapshotService.getRoster(null, false);
+
+        assertThat(second.bytes()).isSameAs(first.bytes());
+        assertThat(second.etag()).isEqualTo(first.etag());
+        verify(playerRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void onChange_ShouldApplyCreateUpdateAndDeleteIncrementally() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>(players));
+        RosterSnapshotService.RosterBody before = rosterSnapshotService.getRoster(null, false);
+        byte[] firstPage = rosterSnapshotService.getRoster(0, false).bytes();
+
+        Player created = player(4L, "Anna", "Lee", "anna@example.com");
+        when(playerRepository.findAllById(List.of(4L))).thenReturn(List.of(created));
+        rosterSnapshotService.onChange(change(PlayerChange.Type.CREATED, 4L));
+        players.add(created);
+
+        RosterSnapshotService.RosterBody afterCreate = rosterSnapshotService.getRoster(null, false);
+        assertThat(json(afterCreate)).isEqualTo(objectMapper.writeValueAsString(players));
+        assertThat(afterCreate.etag()).isNotEqualTo(before.etag());
+        assertThat(rosterSnapshotService.getRoster(0, false).bytes()).isSameAs(firstPage);
+
+        Player updated = player(3L, "Johnny", "Smith", "john.smith@example.com");
+        when(playerRepository.findAllById(List.of(3L))).thenReturn(List.of(updated));
+        rosterSnapshotService.onChange(change(PlayerChange.Type.UPDATED, 3L));
+        players.set(2, updated);
+
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo(objectMapper.writeValueAsString(players));
+
+        when(playerRepository.findAllById(List.of(1L))).thenReturn(List.of());
+        rosterSnapshotService.onChange(change(PlayerChange.Type.DELETED, 1L));
+        players.removeFirst();
+
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo(objectMapper.writeValueAsString(players));
+        verify(playerRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void onChange_whenChangesSplitAndEmptyChunks_thenRendersTheSamePages() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>(players));
+        rosterSnapshotService.getRoster(null, false);
+
+        for (long id = 4; id <= 12; id++) {
+            Player created = player(id, "Name" + id, "Surname" + id, id + "@example.com");
+            when(playerRepository.findAllById(List.of(id))).thenReturn(List.of(created));
+            rosterSnapshotService.onChange(change(PlayerChange.Type.CREATED, id));
+            players.add(created);
+            assertPagesMatch();
+        }
+        for (long id : new long[]{1, 2, 7, 3, 12}) {
+            when(playerRepository.findAllById(List.of(id))).thenReturn(List.of());
+            rosterSnapshotService.onChange(change(PlayerChange.Type.DELETED, id));
+            players.removeIf(player -> player.getId() == id);
+            assertPagesMatch();
+        }
+        verify(playerRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void onChange_ShouldNotAccessTheDatabase() {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players);
+        rosterSnapshotService.getRoster(null, false);
+
+        rosterSnapshotService.onChange(change(PlayerChange.Type.UPDATED, 3L));
+
+        verify(playerRepository).findAll(any(Sort.class));
+        verifyNoMoreInteractions(playerRepository);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void onChange_whenChangesAppliedOutOfOrder_thenKeepsTheCommittedPlayer() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>(players));
+        rosterSnapshotService.getRoster(null, false);
+        // Two concurrent updates of player 3: the change of the last commit is applied first
+        Player committed = player(3L, "John", "Smith", "second@example.com");
+        when(playerRepository.findAllById(List.of(3L))).thenReturn(List.of(committed));
+
+        rosterSnapshotService.onChange(change(PlayerChange.Type.UPDATED, 3L));
+        rosterSnapshotService.onChange(change(PlayerChange.Type.UPDATED, 3L));
+        players.set(2, committed);
+
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo(objectMapper.writeValueAsString(players));
+        // The dirty player is re-read once, seeing the committed row and not the persistence context of the write
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definitions.capture());
+        assertThat(definitions.getValue().getPropagationBehavior()).isEqualTo(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Test
+    void onChange_KO_whenReReadFails_thenReloadsTheRoster() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>(players));
+        rosterSnapshotService.getRoster(null, false);
+        when(playerRepository.findAllById(List.of(3L))).thenThrow(new CannotCreateTransactionException("pool exhausted"));
+        Player committed = player(3L, "Johnny", "Smith", "john.smith@example.com");
+        players.set(2, committed);
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>(players));
+
+        rosterSnapshotService.onChange(change(PlayerChange.Type.UPDATED, 3L));
+
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo(objectMapper.writeValueAsString(players));
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo(objectMapper.writeValueAsString(players));
+        verify(playerRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void onChange_KO_whenReloadFails_thenReloadsOnNextRead() throws Exception {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>(players));
+        rosterSnapshotService.getRoster(null, false);
+        when(playerRepository.findAllById(List.of(3L))).thenThrow(new CannotCreateTransactionException("pool exhausted"));
+        when(playerRepository.findAll(any(Sort.class)))
+                .thenThrow(new CannotCreateTransactionException("pool exhausted"))
+                .thenReturn(List.of());
+
+        rosterSnapshotService.onChange(change(PlayerChange.Type.UPDATED, 3L));
+
+        assertThatThrownBy(() -> rosterSnapshotService.getRoster(null, false))
+                .isInstanceOf(CannotCreateTransactionException.class);
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo("[]");
+        verify(playerRepository, times(3)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void onChange_whenMoreThanAPageOfChanges_thenReloadsOnNextRead() {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players, List.of());
+        rosterSnapshotService.getRoster(null, false);
+
+        for (long id = 4; id <= 6; id++) {
+            rosterSnapshotService.onChange(change(PlayerChange.Type.CREATED, id));
+        }
+
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo("[]");
+        verify(playerRepository, times(2)).findAll(any(Sort.class));
+        verify(playerRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void onResync_ShouldReloadTheRosterOnNextRead() {
+        when(playerRepository.findAll(any(Sort.class))).thenReturn(players, List.of());
+        rosterSnapshotService.getRoster(null, false);
+
+        rosterSnapshotService.onResync();
+
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo("[]");
+        verify(playerRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void onChange_whenRosterNotLoaded_thenDoesNothing() {
+        rosterSnapshotService.onChange(change(PlayerChange.Type.CREATED, 1L));
+
+        verifyNoInteractions(playerRepository);
+    }
+
+    private void assertPagesMatch() throws Exception {
+        assertThat(json(rosterSnapshotService.getRoster(null, false))).isEqualTo(objectMapper.writeValueAsString(players));
+        for (int page = 0; page * 2 < players.size(); page++) {
+            assertThat(json(rosterSnapshotService.getRoster(page, false)))
+                    .isEqualTo(objectMapper.writeValueAsString(players.subList(page * 2, Math.min(players.size(), page * 2 + 2))));
+        }
+    }
+
+    private static Player player(Long id, String name, String surname, String email) {
+        Player player = new Player(name, surname, email);
+        player.setId(id);
+        return player;
+    }
+
+    private static PlayerChange change(PlayerChange.Type type, Long playerId) {
+        return new PlayerChange(type, playerId, "node", Instant.now());
+    }
+
+    private static String json(RosterSnapshotService.RosterBody roster) {
+        return new String(roster.bytes(), StandardCharsets.UTF_8);
+    }
+}